@@ -10,6 +10,8 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.IdeHelper;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
@@ -154,6 +156,9 @@ public class SettingsForm implements Configurable {
 
         getSettings().directoryToApp = directoryToApp.getText();
         getSettings().directoryToWeb = directoryToWeb.getText();
+
+        TwigTemplateIndex.getInstance(this.project).setCacheInvalid();
+        AssetIndex.getInstance(this.project).setCacheInvalid();
     }
 
     @Override
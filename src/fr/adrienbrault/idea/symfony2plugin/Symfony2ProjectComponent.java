@@ -7,18 +7,16 @@ import com.intellij.openapi.components.ProjectComponent;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VfsUtil;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerFile;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
-import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteIndexFactory;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,9 +29,6 @@ public class Symfony2ProjectComponent implements ProjectComponent {
 
     private Project project;
 
-    private Map<String, Route> routes;
-    private Long routesLastModified;
-
     public Symfony2ProjectComponent(Project project) {
         this.project = project;
     }
@@ -54,6 +49,10 @@ public class Symfony2ProjectComponent implements ProjectComponent {
     public void projectOpened() {
         // System.out.println("projectOpened");
         this.checkProject();
+
+        if(this.isEnabled()) {
+            ServiceXmlParserFactory.getInstance(this.project).scheduleLoadSnapshot();
+        }
     }
 
     public void projectClosed() {
@@ -70,31 +69,11 @@ public class Symfony2ProjectComponent implements ProjectComponent {
     }
 
     public Map<String, Route> getRoutes() {
-        Map<String, Route> routes = new HashMap<String, Route>();
-
-        String urlGeneratorPath = getPath(project, Settings.getInstance(project).pathToUrlGenerator);
-        File urlGeneratorFile = new File(urlGeneratorPath);
-        VirtualFile virtualUrlGeneratorFile = VfsUtil.findFileByIoFile(urlGeneratorFile, false);
-
-        if (virtualUrlGeneratorFile == null || !urlGeneratorFile.exists()) {
-            return routes;
-        }
-
-        Long routesLastModified = urlGeneratorFile.lastModified();
-        if (routesLastModified.equals(this.routesLastModified)) {
-            return this.routes;
-        }
-
-        try {
-            routes = RouteHelper.getRoutes(VfsUtil.loadText(virtualUrlGeneratorFile));
-        } catch (IOException e) {
-            return routes;
-        }
-
-        this.routes = routes;
-        this.routesLastModified = routesLastModified;
+        return RouteIndexFactory.getRouteIndex(this.project).getRoutes();
+    }
 
-        return routes;
+    public File getUrlGeneratorFile() {
+        return new File(getPath(project, Settings.getInstance(project).pathToUrlGenerator));
     }
 
     public ArrayList<File> getContainerFiles() {
@@ -154,10 +133,9 @@ public class Symfony2ProjectComponent implements ProjectComponent {
             showInfoNotification("missing at least one container file");
         }
 
-        String urlGeneratorPath = getPath(project, Settings.getInstance(project).pathToUrlGenerator);
-        File urlGeneratorFile = new File(urlGeneratorPath);
+        File urlGeneratorFile = this.getUrlGeneratorFile();
         if (!urlGeneratorFile.exists()) {
-            showInfoNotification("missing routing file: " + urlGeneratorPath);
+            showInfoNotification("missing routing file: " + urlGeneratorFile.getPath());
         }
 
     }
@@ -1,7 +1,6 @@
 package fr.adrienbrault.idea.symfony2plugin;
 
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.patterns.ElementPattern;
@@ -9,12 +8,13 @@ import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiWhiteSpace;
 import com.intellij.psi.tree.IElementType;
-import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.PhpFileType;
 import com.jetbrains.twig.*;
-import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetDirectoryReader;
 import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetFile;
+import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetIndex;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.*;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
@@ -24,6 +24,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,31 +34,32 @@ import java.util.regex.Pattern;
  */
 public class TwigHelper {
 
-    synchronized public static Map<String, PsiFile> getTemplateFilesByName(Project project, boolean useTwig, boolean usePhp) {
+    private static final Pattern ASSET_WILDCARD_PATTERN = Pattern.compile("^(.*[/\\\\])\\*([.\\w+]*)$");
+
+    public static Map<String, PsiFile> getTemplateFilesByName(Project project, boolean useTwig, boolean usePhp) {
         Map<String, PsiFile> results = new HashMap<String, PsiFile>();
-        ProjectFileIndex fileIndex = ProjectFileIndex.SERVICE.getInstance(project);
+        PsiManager psiManager = PsiManager.getInstance(project);
 
-        ArrayList<TwigPath> twigPaths = new ArrayList<TwigPath>();
-        twigPaths.addAll(getTwigNamespaces(project));
-
-        for (TwigPath twigPath : twigPaths) {
-            if(twigPath.isEnabled()) {
-                VirtualFile virtualDirectoryFile = twigPath.getDirectory(project);
-                if(virtualDirectoryFile != null) {
-                    TwigPathContentIterator twigPathContentIterator = new TwigPathContentIterator(project, twigPath).setWithPhp(usePhp).setWithTwig(useTwig);
-                    fileIndex.iterateContentUnderDirectory(virtualDirectoryFile, twigPathContentIterator);
-                    results.putAll(twigPathContentIterator.getResults());
-                }
+        for(Map.Entry<String, VirtualFile> entry: TwigTemplateIndex.getInstance(project).getTemplateFiles().entrySet()) {
+            VirtualFile virtualFile = entry.getValue();
+            if(!virtualFile.isValid()) {
+                continue;
             }
 
+            if((useTwig && virtualFile.getFileType() instanceof TwigFileType) || (usePhp && virtualFile.getFileType() instanceof PhpFileType)) {
+                PsiFile psiFile = psiManager.findFile(virtualFile);
+                if(psiFile != null) {
+                    results.put(entry.getKey(), psiFile);
+                }
+            }
         }
 
         return results;
     }
 
-    synchronized public static Map<String, TwigFile> getTwigFilesByName(Project project) {
+    public static Map<String, TwigFile> getTwigFilesByName(Project project) {
         Map<String, TwigFile> results = new HashMap<String, TwigFile>();
-        for(Map.Entry<String, PsiFile> entry: getTemplateFilesByName(project, true, true).entrySet()) {
+        for(Map.Entry<String, PsiFile> entry: getTemplateFilesByName(project, true, false).entrySet()) {
             if(entry.getValue() instanceof TwigFile) {
                 results.put(entry.getKey(), (TwigFile) entry.getValue());
             }
@@ -66,10 +68,60 @@ public class TwigHelper {
         return results;
     }
 
-    synchronized public static Map<String, PsiFile> getTemplateFilesByName(Project project) {
+    public static Map<String, PsiFile> getTemplateFilesByName(Project project) {
         return getTemplateFilesByName(project, true, true);
     }
 
+    /**
+     * Templates for completion, only the ones in the namespace or directory the user already typed are resolved.
+     * The rest of the typed text is left to the completion matcher, so "AcmeShopBundle:Checkout:ind" selects "AcmeShopBundle:Checkout:"
+     */
+    public static Map<String, PsiFile> getTemplateFilesByPrefix(Project project, String typed, boolean useTwig, boolean usePhp) {
+        Map<String, PsiFile> results = new LinkedHashMap<String, PsiFile>();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        TwigTemplateIndex twigTemplateIndex = TwigTemplateIndex.getInstance(project);
+
+        for(String templateName: twigTemplateIndex.getTemplateNames(getTemplateNamePrefix(typed))) {
+            VirtualFile virtualFile = twigTemplateIndex.getTemplateFile(templateName);
+            if(virtualFile == null || !virtualFile.isValid()) {
+                continue;
+            }
+
+            if((useTwig && virtualFile.getFileType() instanceof TwigFileType) || (usePhp && virtualFile.getFileType() instanceof PhpFileType)) {
+                PsiFile psiFile = psiManager.findFile(virtualFile);
+                if(psiFile != null) {
+                    results.put(templateName, psiFile);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * "AcmeShopBundle:Checkout:ind" is "AcmeShopBundle:Checkout:", "@Acme/Shop/ind" is "@Acme/Shop/"
+     */
+    public static String getTemplateNamePrefix(String typed) {
+        int separator = Math.max(typed.lastIndexOf(':'), typed.lastIndexOf('/'));
+        return separator < 0 ? "" : typed.substring(0, separator + 1);
+    }
+
+    @Nullable
+    public static PsiFile getTemplateFileByName(Project project, String templateName) {
+        VirtualFile virtualFile = TwigTemplateIndex.getInstance(project).getTemplateFile(templateName);
+        if(virtualFile == null || !virtualFile.isValid()) {
+            return null;
+        }
+
+        return PsiManager.getInstance(project).findFile(virtualFile);
+    }
+
+    @Nullable
+    public static TwigFile getTwigFileByName(Project project, String templateName) {
+        PsiFile psiFile = getTemplateFileByName(project, templateName);
+        return psiFile instanceof TwigFile ? (TwigFile) psiFile : null;
+    }
+
     @Nullable
     public static TwigNamespaceSetting findManagedTwigNamespace(Project project, TwigPath twigPath) {
 
@@ -101,21 +153,20 @@ public class TwigHelper {
             templateName = templateName.substring(0, lastDoublePoint) + "/" + subFolder + ":" + file;
         }
 
-        Map<String, PsiFile> twigFiles = TwigHelper.getTemplateFilesByName(project);
-        if(!twigFiles.containsKey(templateName)) {
+        PsiFile psiFile = getTemplateFileByName(project, templateName);
+        if(psiFile == null) {
             return new PsiElement[0];
         }
 
-        return new PsiElement[] {twigFiles.get(templateName)};
+        return new PsiElement[] {psiFile};
     }
 
-    synchronized public static ArrayList<TwigPath> getTwigNamespaces(Project project) {
+    public static ArrayList<TwigPath> getTwigNamespaces(Project project) {
        return getTwigNamespaces(project, true);
     }
 
-    synchronized public static ArrayList<TwigPath> getTwigNamespaces(Project project, boolean includeSettings) {
+    public static ArrayList<TwigPath> getTwigNamespaces(Project project, boolean includeSettings) {
         ArrayList<TwigPath> twigPaths = new ArrayList<TwigPath>();
-        PhpIndex phpIndex = PhpIndex.getInstance(project);
 
         TwigPathServiceParser twigPathServiceParser = ServiceXmlParserFactory.getInstance(project, TwigPathServiceParser.class);
         twigPaths.addAll(twigPathServiceParser.getTwigPathIndex().getTwigPaths());
@@ -126,7 +177,7 @@ public class TwigHelper {
             twigPaths.add(new TwigPath(globalDirectory.getPath(), TwigPathIndex.MAIN, TwigPathIndex.NamespaceType.BUNDLE));
         }
 
-        Collection<SymfonyBundle> symfonyBundles = new SymfonyBundleUtil(phpIndex).getBundles();
+        Collection<SymfonyBundle> symfonyBundles = new SymfonyBundleUtil(project).getBundles();
         for (SymfonyBundle bundle : symfonyBundles) {
             PsiDirectory views = bundle.getSubDirectory("Resources", "views");
             if(views != null) {
@@ -508,19 +559,18 @@ public class TwigHelper {
 
     public static ArrayList<VirtualFile> resolveAssetsFiles(Project project, String templateName, String... fileTypes) {
 
-
         ArrayList<VirtualFile> virtualFiles = new ArrayList<VirtualFile>();
+        AssetIndex assetIndex = AssetIndex.getInstance(project);
 
         // {% javascripts '@SampleBundle/Resources/public/js/*' %}
         // {% javascripts 'assets/js/*' %}
         // {% javascripts 'assets/js/*.js' %}
-        Matcher matcher = Pattern.compile("^(.*[/\\\\])\\*([.\\w+]*)$").matcher(templateName);
+        Matcher matcher = ASSET_WILDCARD_PATTERN.matcher(templateName);
         if (!matcher.find()) {
 
-            for (final AssetFile assetFile : new AssetDirectoryReader().setFilterExtension(fileTypes).setIncludeBundleDir(true).setProject(project).getAssetFiles()) {
-                if(assetFile.toString().equals(templateName)) {
-                    virtualFiles.add(assetFile.getFile());
-                }
+            AssetFile assetFile = assetIndex.getAssetFile(templateName);
+            if(assetFile != null && AssetIndex.isValidExtension(assetFile.getFile(), fileTypes)) {
+                virtualFiles.add(assetFile.getFile());
             }
 
             return virtualFiles;
@@ -529,10 +579,8 @@ public class TwigHelper {
         String pathName = matcher.group(1);
         String fileExtension = matcher.group(2).length() > 0 ? matcher.group(2) : null;
 
-        for (final AssetFile assetFile : new AssetDirectoryReader().setFilterExtension(fileTypes).setIncludeBundleDir(true).setProject(project).getAssetFiles()) {
-            if(fileExtension == null && assetFile.toString().matches(Pattern.quote(pathName) + "(?!.*[/\\\\]).*\\.\\w+")) {
-                virtualFiles.add(assetFile.getFile());
-            } else if(fileExtension != null && assetFile.toString().matches(Pattern.quote(pathName) + "(?!.*[/\\\\]).*" + Pattern.quote(fileExtension))) {
+        for (final AssetFile assetFile : assetIndex.getAssetFilesInDirectory(pathName, fileExtension)) {
+            if(AssetIndex.isValidExtension(assetFile.getFile(), fileTypes)) {
                 virtualFiles.add(assetFile.getFile());
             }
         }
@@ -8,13 +8,12 @@ import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
-import com.jetbrains.php.PhpIndex;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class AssetDirectoryReader {
@@ -22,6 +21,7 @@ public class AssetDirectoryReader {
     protected Project project;
     protected boolean includeBundleDir = false;
     protected String[] filterExtension;
+    protected List<AssetDirectory> assetDirectories = new ArrayList<AssetDirectory>();
 
     public AssetDirectoryReader setProject(Project project) {
         this.project = project;
@@ -38,8 +38,26 @@ public class AssetDirectoryReader {
         return this;
     }
 
+    /**
+     * asset files from the project index
+     */
     public List<AssetFile> getAssetFiles() {
+        return AssetIndex.getInstance(this.project).getAssetFiles(this.includeBundleDir, this.filterExtension);
+    }
+
+    /**
+     * directories walked by the last walkAssetFiles call
+     */
+    public List<AssetDirectory> getAssetDirectories() {
+        return assetDirectories;
+    }
+
+    /**
+     * walks the web directory and bundle Resources directories; use getAssetFiles instead
+     */
+    public List<AssetFile> walkAssetFiles() {
         final List<AssetFile> files = new ArrayList<AssetFile>();
+        this.assetDirectories = new ArrayList<AssetDirectory>();
 
         String webDirectoryName = Settings.getInstance(project).directoryToWeb;
 
@@ -50,6 +68,8 @@ public class AssetDirectoryReader {
             return files;
         }
 
+        this.assetDirectories.add(new AssetDirectory(webDirectory, AssetEnum.Position.Web, webDirectory, null));
+
         ProjectFileIndex fileIndex = ProjectFileIndex.SERVICE.getInstance(project);
         fileIndex.iterateContentUnderDirectory(webDirectory, new ContentIterator() {
             @Override
@@ -65,7 +85,7 @@ public class AssetDirectoryReader {
             return files;
         }
 
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(PhpIndex.getInstance(this.project));
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(this.project);
         for(final SymfonyBundle bundle : symfonyBundleUtil.getBundles()) {
 
             PsiDirectory bundleDirectory = bundle.getDirectory();
@@ -78,6 +98,8 @@ public class AssetDirectoryReader {
 
             if (null != blaDirectory) {
 
+                this.assetDirectories.add(new AssetDirectory(blaDirectory, AssetEnum.Position.Bundle, bundleDirectoryVirtual, '@' + bundle.getName() + "/"));
+
                 fileIndex.iterateContentUnderDirectory(blaDirectory, new ContentIterator() {
                     @Override
                     public boolean processFile(final VirtualFile virtualFile) {
@@ -98,20 +120,40 @@ public class AssetDirectoryReader {
     }
 
     private boolean isValidFile(VirtualFile virtualFile) {
+        return !virtualFile.isDirectory() && AssetIndex.isValidExtension(virtualFile, this.filterExtension);
+    }
+
+    /**
+     * walked directory and how its files are named
+     */
+    public static class AssetDirectory {
+
+        private final VirtualFile directory;
+        private final AssetEnum.Position assetPosition;
+        private final VirtualFile relativeFolder;
 
-        if (virtualFile.isDirectory()) {
-            return false;
+        @Nullable
+        private final String prefix;
+
+        public AssetDirectory(VirtualFile directory, AssetEnum.Position assetPosition, VirtualFile relativeFolder, @Nullable String prefix) {
+            this.directory = directory;
+            this.assetPosition = assetPosition;
+            this.relativeFolder = relativeFolder;
+            this.prefix = prefix;
         }
 
-        if (this.filterExtension != null) {
-            String extension = virtualFile.getExtension();
+        public VirtualFile getDirectory() {
+            return directory;
+        }
 
-            // file need extension and it must be in list
-            return null != extension && Arrays.asList(this.filterExtension).contains(extension);
+        public AssetFile createAssetFile(VirtualFile virtualFile) {
+            if(this.prefix == null) {
+                return new AssetFile(virtualFile, this.assetPosition, this.relativeFolder);
+            }
 
+            return new AssetFile(virtualFile, this.assetPosition, this.relativeFolder, this.prefix);
         }
 
-        return true;
     }
 
 }
@@ -0,0 +1,422 @@
+package fr.adrienbrault.idea.symfony2plugin.asset.dic;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Logical asset path ("css/foo.css", "@FooBundle/Resources/public/js/foo.js") to file for the web directory
+ * and the Resources directory of all bundles.
+ *
+ * Walked on a pooled thread and kept up to date with vfs events, like the template index: files created, deleted, moved or renamed
+ * inside a known asset directory are added or removed one by one; only changes of the asset directories themselves
+ * or of bundle classes walk them again. Exact paths are a map lookup, wildcards only look at the files of their directory.
+ */
+public class AssetIndex implements Disposable {
+
+    private static final Pattern FILE_WITH_EXTENSION = Pattern.compile(".*\\.\\w+");
+
+    private static final Snapshot EMPTY_SNAPSHOT = new Snapshot(Collections.<AssetDirectoryReader.AssetDirectory>emptyList(), Collections.<String, AssetFile>emptyMap());
+
+    protected Project project;
+
+    @Nullable
+    protected volatile Snapshot snapshot;
+
+    /**
+     * snapshot misses changes which can not be applied one by one; walk again on next access
+     */
+    protected volatile boolean outdated = true;
+
+    protected AtomicBoolean building = new AtomicBoolean(false);
+
+    protected volatile boolean disposed = false;
+
+    public AssetIndex(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(List<? extends VFileEvent> events) {
+                for(VFileEvent event: events) {
+                    if(event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || isRenameEvent(event)) {
+                        AssetIndex.this.fileRemoved(event.getFile());
+                    }
+                }
+            }
+
+            @Override
+            public void after(List<? extends VFileEvent> events) {
+                for(VFileEvent event: events) {
+                    if(event instanceof VFileCreateEvent || event instanceof VFileMoveEvent || isRenameEvent(event)) {
+                        AssetIndex.this.fileAdded(event.getFile());
+                    } else if(event instanceof VFileCopyEvent) {
+                        VFileCopyEvent copyEvent = (VFileCopyEvent) event;
+                        AssetIndex.this.fileAdded(copyEvent.getNewParent().findChild(copyEvent.getNewChildName()));
+                    }
+                }
+            }
+        });
+    }
+
+    private static boolean isRenameEvent(VFileEvent event) {
+        return event instanceof VFilePropertyChangeEvent && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName());
+    }
+
+    /**
+     * @param includeBundleDir also files of bundle Resources directories
+     * @param filterExtension file extensions to accept; null for all
+     */
+    public List<AssetFile> getAssetFiles(boolean includeBundleDir, @Nullable String... filterExtension) {
+
+        List<AssetFile> files = new ArrayList<AssetFile>();
+        for(AssetFile assetFile: this.getSnapshot().getAssetFiles().values()) {
+            if((includeBundleDir || assetFile.getAssetPosition() == AssetEnum.Position.Web) && isValidExtension(assetFile.getFile(), filterExtension)) {
+                files.add(assetFile);
+            }
+        }
+
+        return files;
+    }
+
+    @Nullable
+    public AssetFile getAssetFile(String assetPath) {
+        return this.getSnapshot().getAssetFiles().get(assetPath);
+    }
+
+    /**
+     * Files matching "assets/js/*" or "assets/js/*.js"; only direct children of the directory
+     *
+     * @param directory logical directory with trailing slash
+     * @param fileEnding required end of the file name, without one only files with an extension match
+     */
+    public List<AssetFile> getAssetFilesInDirectory(String directory, @Nullable String fileEnding) {
+
+        List<AssetFile> directoryFiles = this.getSnapshot().getDirectoryFiles().get(directory);
+        if(directoryFiles == null) {
+            return Collections.emptyList();
+        }
+
+        List<AssetFile> files = new ArrayList<AssetFile>();
+        for(AssetFile assetFile: directoryFiles) {
+            String fileName = assetFile.getFile().getName();
+            if(fileEnding == null ? FILE_WITH_EXTENSION.matcher(fileName).matches() : fileName.endsWith(fileEnding)) {
+                files.add(assetFile);
+            }
+        }
+
+        return files;
+    }
+
+    protected Snapshot getSnapshot() {
+
+        if(this.snapshot == null || this.outdated) {
+            this.scheduleBuild();
+        }
+
+        // build may have run synchronously
+        Snapshot snapshot = this.snapshot;
+        return snapshot != null ? snapshot : EMPTY_SNAPSHOT;
+    }
+
+    protected void scheduleBuild() {
+
+        if(this.disposed || !this.building.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.outdated = false;
+
+        Runnable runnable = new Runnable() {
+            public void run() {
+                try {
+                    Snapshot snapshot = ApplicationManager.getApplication().runReadAction(new Computable<Snapshot>() {
+                        @Override
+                        public Snapshot compute() {
+                            return build();
+                        }
+                    });
+
+                    if(!AssetIndex.this.disposed) {
+                        AssetIndex.this.snapshot = snapshot;
+                    }
+                } finally {
+                    AssetIndex.this.building.set(false);
+                }
+            }
+        };
+
+        Application application = ApplicationManager.getApplication();
+        if(application.isUnitTestMode()) {
+            runnable.run();
+        } else {
+            application.executeOnPooledThread(runnable);
+        }
+
+    }
+
+    protected Snapshot build() {
+
+        AssetDirectoryReader assetDirectoryReader = new AssetDirectoryReader().setProject(this.project).setIncludeBundleDir(true);
+
+        Map<String, AssetFile> assetFiles = new LinkedHashMap<String, AssetFile>();
+        for(AssetFile assetFile: assetDirectoryReader.walkAssetFiles()) {
+            assetFiles.put(assetFile.toString(), assetFile);
+        }
+
+        return new Snapshot(assetDirectoryReader.getAssetDirectories(), assetFiles);
+    }
+
+    /**
+     * file or directory is about to be deleted, moved or renamed
+     */
+    protected void fileRemoved(@Nullable VirtualFile virtualFile) {
+
+        Snapshot snapshot = this.snapshot;
+        if(snapshot == null || virtualFile == null) {
+            return;
+        }
+
+        if(this.isAssetDirectoryChange(snapshot, virtualFile)) {
+            this.outdated = true;
+        } else if(snapshot.isInAssetDirectory(virtualFile)) {
+            this.setChangedSnapshot(snapshot.remove(virtualFile));
+        }
+
+    }
+
+    /**
+     * file or directory was created, moved or renamed
+     */
+    protected void fileAdded(@Nullable VirtualFile virtualFile) {
+
+        Snapshot snapshot = this.snapshot;
+        if(snapshot == null || virtualFile == null) {
+            return;
+        }
+
+        if(this.isAssetDirectoryChange(snapshot, virtualFile)) {
+            this.outdated = true;
+        } else if(snapshot.isInAssetDirectory(virtualFile)) {
+            this.setChangedSnapshot(snapshot.add(virtualFile));
+        }
+
+    }
+
+    /**
+     * bundle classes, the asset directories or their parents, or a new web or bundle Resources directory change the asset directories
+     */
+    protected boolean isAssetDirectoryChange(Snapshot snapshot, VirtualFile virtualFile) {
+
+        if(!virtualFile.isDirectory()) {
+            return virtualFile.getName().endsWith("Bundle.php");
+        }
+
+        if(virtualFile.getName().equals("Resources") || virtualFile.equals(VfsUtil.findRelativeFile(this.project.getBaseDir(), Settings.getInstance(this.project).directoryToWeb))) {
+            return true;
+        }
+
+        for(AssetDirectoryReader.AssetDirectory assetDirectory: snapshot.getAssetDirectories()) {
+            if(VfsUtil.isAncestor(virtualFile, assetDirectory.getDirectory(), false)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected void setChangedSnapshot(Snapshot snapshot) {
+
+        // a running walk may not have seen this change
+        if(this.building.get()) {
+            this.outdated = true;
+        }
+
+        this.snapshot = snapshot;
+    }
+
+    public void setCacheInvalid() {
+        this.outdated = true;
+    }
+
+    @Override
+    public void dispose() {
+        this.disposed = true;
+        this.snapshot = null;
+    }
+
+    public static boolean isValidExtension(VirtualFile virtualFile, @Nullable String... filterExtension) {
+
+        if(filterExtension == null) {
+            return true;
+        }
+
+        // file need extension and it must be in list
+        String extension = virtualFile.getExtension();
+        if(extension == null) {
+            return false;
+        }
+
+        for(String filter: filterExtension) {
+            if(extension.equals(filter)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static AssetIndex getInstance(Project project) {
+        return ServiceManager.getService(project, AssetIndex.class);
+    }
+
+    protected static class Snapshot {
+
+        private final List<AssetDirectoryReader.AssetDirectory> assetDirectories;
+        private final Map<String, AssetFile> assetFiles;
+
+        @Nullable
+        private volatile Map<String, List<AssetFile>> directoryFiles;
+
+        public Snapshot(List<AssetDirectoryReader.AssetDirectory> assetDirectories, Map<String, AssetFile> assetFiles) {
+            this.assetDirectories = assetDirectories;
+            this.assetFiles = Collections.unmodifiableMap(assetFiles);
+        }
+
+        public Map<String, AssetFile> getAssetFiles() {
+            return assetFiles;
+        }
+
+        /**
+         * logical directory with trailing slash to its files; only needed for wildcards, so build on first use
+         */
+        public Map<String, List<AssetFile>> getDirectoryFiles() {
+
+            Map<String, List<AssetFile>> directoryFiles = this.directoryFiles;
+            if(directoryFiles != null) {
+                return directoryFiles;
+            }
+
+            directoryFiles = new HashMap<String, List<AssetFile>>();
+            for(Map.Entry<String, AssetFile> entry: this.assetFiles.entrySet()) {
+                String directory = entry.getKey().substring(0, entry.getKey().lastIndexOf('/') + 1);
+                List<AssetFile> files = directoryFiles.get(directory);
+                if(files == null) {
+                    files = new ArrayList<AssetFile>();
+                    directoryFiles.put(directory, files);
+                }
+                files.add(entry.getValue());
+            }
+
+            this.directoryFiles = directoryFiles;
+            return directoryFiles;
+        }
+
+        /**
+         * @return asset for a file inside one of the asset directories
+         */
+        @Nullable
+        public AssetFile createAssetFile(VirtualFile virtualFile) {
+            for(AssetDirectoryReader.AssetDirectory assetDirectory: this.assetDirectories) {
+                if(VfsUtil.isAncestor(assetDirectory.getDirectory(), virtualFile, true)) {
+                    return assetDirectory.createAssetFile(virtualFile);
+                }
+            }
+
+            return null;
+        }
+
+        public List<AssetDirectoryReader.AssetDirectory> getAssetDirectories() {
+            return assetDirectories;
+        }
+
+        public boolean isInAssetDirectory(VirtualFile virtualFile) {
+            for(AssetDirectoryReader.AssetDirectory assetDirectory: this.assetDirectories) {
+                if(VfsUtil.isAncestor(assetDirectory.getDirectory(), virtualFile, true)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @param virtualFile file or directory with files
+         */
+        public Snapshot add(VirtualFile virtualFile) {
+
+            List<VirtualFile> files = new ArrayList<VirtualFile>();
+            collectFiles(virtualFile, files);
+            if(files.size() == 0) {
+                return this;
+            }
+
+            Map<String, AssetFile> assetFiles = new LinkedHashMap<String, AssetFile>(this.assetFiles);
+            for(VirtualFile file: files) {
+                AssetFile assetFile = this.createAssetFile(file);
+                if(assetFile != null) {
+                    assetFiles.put(assetFile.toString(), assetFile);
+                }
+            }
+
+            return new Snapshot(this.assetDirectories, assetFiles);
+        }
+
+        /**
+         * @param virtualFile file or directory with files
+         */
+        public Snapshot remove(VirtualFile virtualFile) {
+
+            Map<String, AssetFile> assetFiles = null;
+            for(Map.Entry<String, AssetFile> entry: this.assetFiles.entrySet()) {
+                if(VfsUtil.isAncestor(virtualFile, entry.getValue().getFile(), false)) {
+                    if(assetFiles == null) {
+                        assetFiles = new LinkedHashMap<String, AssetFile>(this.assetFiles);
+                    }
+                    assetFiles.remove(entry.getKey());
+                }
+            }
+
+            return assetFiles == null ? this : new Snapshot(this.assetDirectories, assetFiles);
+        }
+
+        private static void collectFiles(VirtualFile virtualFile, List<VirtualFile> files) {
+
+            if(!virtualFile.isDirectory()) {
+                files.add(virtualFile);
+                return;
+            }
+
+            for(VirtualFile child: virtualFile.getChildren()) {
+                collectFiles(child, files);
+            }
+
+        }
+
+    }
+
+}
@@ -2,31 +2,20 @@ package fr.adrienbrault.idea.symfony2plugin.config;
 
 
 import com.intellij.codeInsight.navigation.actions.GotoDeclarationHandler;
-import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.FileTypeIndex;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.xml.XmlFile;
-import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.config.xml.XmlHelper;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceDefinitionIndex;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
-import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.yaml.YAMLFileType;
-import org.jetbrains.yaml.psi.YAMLFile;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 public class PhpClassServiceGotoDeclarationHandler implements GotoDeclarationHandler {
 
@@ -40,14 +29,14 @@ public class PhpClassServiceGotoDeclarationHandler implements GotoDeclarationHan
         PhpClass phpClass = (PhpClass) psiElement.getContext();
         String phpClassName = phpClass.getPresentableFQN();
 
-        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(psiElement.getProject(), XmlServiceParser.class).getServiceMap();
-        String serviceName = serviceMap.resolveClassName(phpClassName);
+        ServiceMap serviceMap = ServiceIndex.getServiceMap(psiElement.getProject());
+        Collection<String> serviceNames = serviceMap.resolveClassNames(phpClassName);
 
-        if(serviceName == null) {
+        if(serviceNames.size() == 0) {
             return new PsiElement[0];
         }
 
-        ArrayList<PsiElement> serviceTargets = getPossibleServiceTarget(psiElement.getProject(), serviceName);
+        ArrayList<PsiElement> serviceTargets = getPossibleServiceTarget(psiElement.getProject(), serviceNames);
         return serviceTargets.toArray(new PsiElement[serviceTargets.size()]);
 
     }
@@ -59,35 +48,11 @@ public class PhpClassServiceGotoDeclarationHandler implements GotoDeclarationHan
     }
 
     public static ArrayList<PsiElement> getPossibleServiceTarget(Project project, String serverName) {
+        return getPossibleServiceTarget(project, Collections.singletonList(serverName));
+    }
 
-        ArrayList<PsiElement> items = new ArrayList<PsiElement>();
-
-        FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-        Collection<VirtualFile> twigVirtualFiles = fileBasedIndex.getContainingFiles(FileTypeIndex.NAME, YAMLFileType.YML, GlobalSearchScope.projectScope(project));
-
-        for (VirtualFile twigVirtualFile : twigVirtualFiles) {
-            YAMLFile twigFile = (YAMLFile) PsiManager.getInstance(project).findFile(twigVirtualFile);
-            PsiElement servicePsiElement = YamlHelper.getLocalServiceName(twigFile, serverName);
-            if(servicePsiElement != null) {
-                items.add(servicePsiElement);
-            }
-        }
-
-        Collection<VirtualFile> xmlVirtualFiles = fileBasedIndex.getContainingFiles(FileTypeIndex.NAME, XmlFileType.INSTANCE, GlobalSearchScope.projectScope(project));
-
-        for (VirtualFile xmlVirtualFile : xmlVirtualFiles) {
-            PsiFile psiFile = PsiManager.getInstance(project).findFile(xmlVirtualFile);
-
-            if(psiFile instanceof XmlFile) {
-                PsiElement servicePsiElement = XmlHelper.getLocalServiceName(psiFile, serverName);
-                if(servicePsiElement != null) {
-                    items.add(servicePsiElement);
-                }
-            }
-
-        }
-
-        return items;
+    public static ArrayList<PsiElement> getPossibleServiceTarget(Project project, Collection<String> serverNames) {
+        return new ArrayList<PsiElement>(ServiceDefinitionIndex.getServiceDefinitionTargets(project, serverNames));
     }
 
 }
@@ -11,9 +11,8 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
@@ -43,7 +42,7 @@ public class ServiceLineMarkerProvider extends RelatedItemLineMarkerProvider {
 
         String serviceId = ((StringLiteralExpression) psiElement).getContents();
 
-        String serviceClass = ServiceXmlParserFactory.getInstance(psiElement.getProject(), XmlServiceParser.class).getServiceMap().getMap().get(serviceId.toLowerCase());
+        String serviceClass = ServiceIndex.getServiceMap(psiElement.getProject()).getMap().get(serviceId.toLowerCase());
         if (null == serviceClass) {
             return;
         }
@@ -1,41 +1,69 @@
 package fr.adrienbrault.idea.symfony2plugin.config.component.parser;
 
-import fr.adrienbrault.idea.symfony2plugin.translation.dict.DomainFileMap;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.CompactStringMap;
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-public class ParameterServiceParser extends AbstractServiceParser {
+public class ParameterServiceParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
-    protected  Map<String, String> parameterMap = new HashMap<String, String>();
+    /**
+     * working map only alive while a document is parsed; afterwards kept as compact map
+     */
+    protected Map<String, String> parameterMap;
+    protected Map<String, String> compactParameterMap = new HashMap<String, String>();
 
+    /**
+     * /container/parameters/parameter[@key]
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/parameters/parameter[@key]";
-    }
-
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+    public void endElement(ServiceXmlElement element) {
 
-        if(nodeList == null) {
+        if(!element.hasAttribute("key") || !element.isPath("container", "parameters", "parameter")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String parameterValue = node.hasAttribute("type") && node.getAttribute("type").equals("collection") ?  "collection" : node.getTextContent();
-            this.parameterMap.put(node.getAttribute("key"), parameterValue);
+        String parameterValue = element.isAttribute("type", "collection") ?  "collection" : element.getText();
+        this.getWorkingMap().put(element.getAttribute("key"), parameterValue);
+
+    }
+
+    @Override
+    public void endDocument() {
+        if(this.parameterMap != null) {
+            this.compactParameterMap = new CompactStringMap(this.parameterMap);
+            this.parameterMap = null;
         }
+    }
 
+    private Map<String, String> getWorkingMap() {
+        if(this.parameterMap == null) {
+            this.parameterMap = new HashMap<String, String>(this.compactParameterMap);
+        }
+
+        return this.parameterMap;
     }
 
     public Map<String, String> getParameterMap() {
-        return parameterMap;
+        return compactParameterMap;
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.getParameterMap());
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        ServiceXmlSnapshotStorage.readStringMap(input, this.getWorkingMap());
+        this.endDocument();
     }
 
-}
\ No newline at end of file
+}
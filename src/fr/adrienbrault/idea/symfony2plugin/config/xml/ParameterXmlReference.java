@@ -10,7 +10,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,7 +38,7 @@ public class ParameterXmlReference extends PsiReferenceBase<PsiElement> implemen
 
         String parameterName = ServiceXmlParserFactory.getInstance(getElement().getProject(), ParameterServiceParser.class).getParameterMap().get(this.parameterName);
         if (null == parameterName) {
-            HashMap<String,String> localMissingParameterMap = XmlHelper.getLocalMissingParameterMap(getElement(), null);
+            Map<String,String> localMissingParameterMap = XmlHelper.getLocalMissingParameterMap(getElement(), null);
             if(localMissingParameterMap == null || !localMissingParameterMap.containsKey(this.parameterName)) {
                 return new ResolveResult[]{};
             }
@@ -84,7 +83,7 @@ public class ParameterXmlReference extends PsiReferenceBase<PsiElement> implemen
             results.add(new ParameterLookupElement(parameterKey, Entry.getValue()));
         }
 
-        HashMap<String,String> localMissingParameterMap = XmlHelper.getLocalMissingParameterMap(getElement(), it);
+        Map<String,String> localMissingParameterMap = XmlHelper.getLocalMissingParameterMap(getElement(), it);
         if(localMissingParameterMap != null && localMissingParameterMap.size() > 0) {
             for(Map.Entry<String, String> Entry: localMissingParameterMap.entrySet()) {
                 String parameterKey = Entry.getKey();
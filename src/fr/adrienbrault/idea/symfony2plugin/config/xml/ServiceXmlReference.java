@@ -2,11 +2,10 @@ package fr.adrienbrault.idea.symfony2plugin.config.xml;
 
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.psi.*;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceStringLookupElement;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -31,7 +30,7 @@ public class ServiceXmlReference extends PsiReferenceBase<PsiElement> implements
     public ResolveResult[] multiResolve(boolean incompleteCode) {
 
         // Return the PsiElement for the class corresponding to the serviceId
-        String serviceClass = ServiceXmlParserFactory.getInstance(getElement().getProject(), XmlServiceParser.class).getServiceMap().getMap().get(serviceId.toLowerCase());
+        String serviceClass = ServiceIndex.getServiceMap(getElement().getProject()).getMap().get(serviceId.toLowerCase());
 
         if (null == serviceClass) {
             ServiceMap localServiceMap = XmlHelper.getLocalMissingServiceMap(getElement(), null);
@@ -58,7 +57,7 @@ public class ServiceXmlReference extends PsiReferenceBase<PsiElement> implements
     @Override
     public Object[] getVariants() {
 
-        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(getElement().getProject(), XmlServiceParser.class).getServiceMap();
+        ServiceMap serviceMap = ServiceIndex.getServiceMap(getElement().getProject());
         Map<String, String> serviceMapPublicMap = serviceMap.getPublicMap();
 
         List<LookupElement> results = new ArrayList<LookupElement>();
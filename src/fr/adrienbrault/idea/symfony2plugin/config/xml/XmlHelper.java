@@ -1,29 +1,32 @@
 package fr.adrienbrault.idea.symfony2plugin.config.xml;
 
-import com.intellij.openapi.vfs.VfsUtil;
-import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.util.Key;
 import com.intellij.patterns.PsiElementPattern;
 import com.intellij.patterns.PsiFilePattern;
 import com.intellij.patterns.StandardPatterns;
 import com.intellij.patterns.XmlPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.impl.source.xml.XmlDocumentImpl;
-import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.xml.XmlTag;
 import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
-import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMapParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlReader;
 import org.jetbrains.annotations.Nullable;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class XmlHelper {
+
+    private static final Key<CachedValue<LocalServiceModel>> LOCAL_SERVICE_MODEL = new Key<CachedValue<LocalServiceModel>>("SYMFONY2_XML_LOCAL_SERVICE_MODEL");
+
     public static PsiElementPattern.Capture<PsiElement> getTagPattern(String... tags) {
         return XmlPatterns
             .psiElement()
@@ -97,84 +100,103 @@ public class XmlHelper {
 
     @Nullable
     public static ServiceMap getLocalMissingServiceMap(PsiElement psiElement,@Nullable Map<String, String> currentServiceMap) {
-        try {
-            VirtualFile virtualFile = psiElement.getContainingFile().getOriginalFile().getVirtualFile();
-            if(virtualFile != null) {
-                ServiceMap localServiceMap = new ServiceMapParser().parse(virtualFile.getInputStream());
-                ServiceMap unknownServiceMap = new ServiceMap();
-                for(Map.Entry<String, String> entry: localServiceMap.getPublicMap().entrySet()) {
-                    if(currentServiceMap == null) {
-                        unknownServiceMap.getMap().put(entry.getKey(), entry.getValue());
-                    } else if ( !currentServiceMap.containsKey(entry.getKey())) {
-                        unknownServiceMap.getMap().put(entry.getKey(), entry.getValue());
-                    }
-                }
-
-                return unknownServiceMap;
-            }
 
-        } catch (SAXException ignored) {
-        } catch (IOException ignored) {
-        } catch (ParserConfigurationException ignored) {
+        LocalServiceModel localServiceModel = getLocalServiceModel(psiElement);
+        if(localServiceModel == null) {
+            return null;
+        }
+
+        if(currentServiceMap == null) {
+            return localServiceModel.getServiceMap();
+        }
+
+        Map<String, String> unknownServices = new HashMap<String, String>();
+        for(Map.Entry<String, String> entry: localServiceModel.getServiceMap().getMap().entrySet()) {
+            if (!currentServiceMap.containsKey(entry.getKey())) {
+                unknownServices.put(entry.getKey(), entry.getValue());
+            }
         }
 
-        return null;
+        return new ServiceMap(unknownServices, new HashMap<String, String>());
     }
 
     @Nullable
-    public static HashMap<String, String> getLocalMissingParameterMap(PsiElement psiElement,@Nullable Map<String, String> currentServiceMap) {
-
-        VirtualFile virtualFile = psiElement.getContainingFile().getOriginalFile().getVirtualFile();
-        if(virtualFile != null) {
-            ParameterServiceParser parameterServiceParser = new ParameterServiceParser();
-            parameterServiceParser.parser(VfsUtil.virtualToIoFile(virtualFile));
-            HashMap<String, String> unknownParameterMap = new HashMap<String, String>();
-
-            for(Map.Entry<String, String> entry: parameterServiceParser.getParameterMap().entrySet()) {
-                if(currentServiceMap == null) {
-                    unknownParameterMap.put(entry.getKey(), entry.getValue());
-                } else if ( !currentServiceMap.containsKey(entry.getKey())) {
-                    unknownParameterMap.put(entry.getKey(), entry.getValue());
-                }
-            }
+    public static Map<String, String> getLocalMissingParameterMap(PsiElement psiElement,@Nullable Map<String, String> currentServiceMap) {
+
+        LocalServiceModel localServiceModel = getLocalServiceModel(psiElement);
+        if(localServiceModel == null) {
+            return null;
+        }
 
-            return unknownParameterMap;
+        if(currentServiceMap == null) {
+            return localServiceModel.getParameterMap();
         }
 
+        Map<String, String> unknownParameterMap = new HashMap<String, String>();
+        for(Map.Entry<String, String> entry: localServiceModel.getParameterMap().entrySet()) {
+            if (!currentServiceMap.containsKey(entry.getKey())) {
+                unknownParameterMap.put(entry.getKey(), entry.getValue());
+            }
+        }
 
-        return null;
+        return unknownParameterMap;
     }
 
+    /**
+     * Services and parameters of the file the element is in.
+     *
+     * Built once per change of the file and shared by all xml references and completion;
+     * completion works on a copy of the file, so the original file is used.
+     */
     @Nullable
-    public static PsiElement getLocalServiceName(PsiFile psiFile, String serviceName) {
+    private static LocalServiceModel getLocalServiceModel(PsiElement psiElement) {
 
-        if(!(psiFile.getFirstChild() instanceof XmlDocumentImpl)) {
+        PsiFile containingFile = psiElement.getContainingFile();
+        if(containingFile == null) {
             return null;
         }
 
-        XmlTag xmlTags[] = PsiTreeUtil.getChildrenOfType(psiFile.getFirstChild(), XmlTag.class);
-        if(xmlTags == null) {
-            return null;
+        final PsiFile psiFile = containingFile.getOriginalFile();
+        return CachedValuesManager.getManager(psiFile.getProject()).getCachedValue(psiFile, LOCAL_SERVICE_MODEL, new CachedValueProvider<LocalServiceModel>() {
+            @Override
+            public Result<LocalServiceModel> compute() {
+                return Result.create(createLocalServiceModel(psiFile), psiFile);
+            }
+        }, false);
+    }
+
+    private static LocalServiceModel createLocalServiceModel(PsiFile psiFile) {
+
+        // one pass over the current text, unsaved changes included
+        XmlServiceParser xmlServiceParser = new XmlServiceParser();
+        ParameterServiceParser parameterServiceParser = new ParameterServiceParser();
+        ServiceXmlReader.read(psiFile.getText(), Arrays.<ServiceParserInterface>asList(xmlServiceParser, parameterServiceParser));
+
+        ServiceMap serviceMap = new ServiceMap(xmlServiceParser.getServiceMap().getPublicMap(), new HashMap<String, String>());
+        return new LocalServiceModel(serviceMap, Collections.unmodifiableMap(parameterServiceParser.getParameterMap()));
+    }
+
+    private static class LocalServiceModel {
+
+        private final ServiceMap serviceMap;
+        private final Map<String, String> parameterMap;
+
+        public LocalServiceModel(ServiceMap serviceMap, Map<String, String> parameterMap) {
+            this.serviceMap = serviceMap;
+            this.parameterMap = parameterMap;
         }
 
-        for(XmlTag xmlTag: xmlTags) {
-            if(xmlTag.getName().equals("container")) {
-                for(XmlTag servicesTag: xmlTag.getSubTags()) {
-                    if(servicesTag.getName().equals("services")) {
-                        for(XmlTag serviceTag: servicesTag.getSubTags()) {
-                            XmlAttribute attrValue = serviceTag.getAttribute("id");
-                            if(attrValue != null) {
-                                String serviceNameId = attrValue.getValue();
-                                if(serviceNameId != null && serviceNameId.equals(serviceName)) {
-                                    return serviceTag;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        /**
+         * public services, all in the map of the ServiceMap
+         */
+        public ServiceMap getServiceMap() {
+            return serviceMap;
+        }
+
+        public Map<String, String> getParameterMap() {
+            return parameterMap;
         }
 
-        return null;
     }
+
 }
@@ -1,9 +1,17 @@
 package fr.adrienbrault.idea.symfony2plugin.config.yaml;
 
 import com.intellij.lang.annotation.AnnotationHolder;
-import com.intellij.lang.annotation.Annotator;
+import com.intellij.lang.annotation.ExternalAnnotator;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.patterns.ElementPattern;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiRecursiveElementVisitor;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.Parameter;
@@ -12,13 +20,14 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.yaml.YAMLTokenTypes;
 import org.jetbrains.yaml.psi.YAMLArray;
 import org.jetbrains.yaml.psi.YAMLCompoundValue;
@@ -26,274 +35,485 @@ import org.jetbrains.yaml.psi.YAMLKeyValue;
 import org.jetbrains.yaml.psi.YAMLSequence;
 
 import java.util.ArrayList;
-
-public class YamlAnnotator implements Annotator {
-
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Annotates a whole service file in one pass.
+ *
+ * Candidate tokens are collected with the file; they are resolved on a background thread in small read actions,
+ * so typing is never blocked by a long walk and a changed file stops the pass. Container maps are fetched once per pass and
+ * class lookups are shared between all elements, then all annotations are published together.
+ */
+public class YamlAnnotator extends ExternalAnnotator<YamlAnnotator.AnnotationInfo, List<YamlAnnotator.Problem>> {
+
+    /**
+     * tokens resolved per read action
+     */
+    private static final int TOKENS_PER_READ_ACTION = 50;
+
+    private static final ElementPattern<PsiElement> INSIDE_SERVICE_KEY = YamlElementPatternHelper.getInsideServiceKeyPattern();
+    private static final ElementPattern<PsiElement> INSIDE_SERVICES = YamlElementPatternHelper.getInsideKeyValue("services");
+    private static final ElementPattern<PsiElement> INSIDE_CALLS = YamlElementPatternHelper.getInsideKeyValue("calls");
+    private static final ElementPattern<PsiElement> PARAMETER_DEFINITION = YamlElementPatternHelper.getServiceParameterDefinition();
+    private static final ElementPattern<PsiElement> SERVICE_DEFINITION = YamlElementPatternHelper.getServiceDefinition();
+    private static final ElementPattern<PsiElement> CLASS_KEY = YamlElementPatternHelper.getSingleLineScalarKey("class", "factory_class");
+    private static final ElementPattern<PsiElement> PARAMETER_CLASS = YamlElementPatternHelper.getParameterClassPattern();
+    private static final ElementPattern<PsiElement> SCALAR = PlatformPatterns.or(
+        PlatformPatterns.psiElement(YAMLTokenTypes.TEXT),
+        PlatformPatterns.psiElement(YAMLTokenTypes.SCALAR_DSTRING)
+    );
+
+    @Nullable
     @Override
-    public void annotate(@NotNull final PsiElement psiElement, @NotNull AnnotationHolder holder) {
+    public AnnotationInfo collectInformation(@NotNull PsiFile file) {
 
-        if(!Symfony2ProjectComponent.isEnabled(psiElement.getProject()) || !Settings.getInstance(psiElement.getProject()).yamlAnnotateServiceConfig) {
-            return;
+        if(!Symfony2ProjectComponent.isEnabled(file.getProject()) || !Settings.getInstance(file.getProject()).yamlAnnotateServiceConfig) {
+            return null;
         }
 
-        this.annotateParameter(psiElement, holder);
-        this.annotateClass(psiElement, holder);
-        this.annotateService(psiElement, holder);
+        final List<PsiElement> tokens = new ArrayList<PsiElement>();
+        file.accept(new PsiRecursiveElementVisitor() {
+            @Override
+            public void visitElement(PsiElement element) {
 
-        // only match inside service definitions
-        if(!YamlElementPatternHelper.getInsideKeyValue("services").accepts(psiElement)) {
-            return;
-        }
+                // all annotated elements are tokens inside services or parameters
+                if(element.getFirstChild() == null && INSIDE_SERVICE_KEY.accepts(element)) {
+                    tokens.add(element);
+                }
 
-        this.annotateConstructorArguments(psiElement, holder);
-        this.annotateCallsArguments(psiElement, holder);
-        this.annotateCallMethod(psiElement, holder);
+                super.visitElement(element);
+            }
+        });
+
+        return tokens.size() == 0 ? null : new AnnotationInfo(file, tokens);
     }
 
-    private void annotateParameter(@NotNull final PsiElement psiElement, @NotNull AnnotationHolder holder) {
-        if(!YamlElementPatternHelper.getServiceParameterDefinition().accepts(psiElement) || !YamlElementPatternHelper.getInsideServiceKeyPattern().accepts(psiElement)) {
-            return;
-        }
+    @Nullable
+    @Override
+    public List<Problem> doAnnotate(final AnnotationInfo annotationInfo) {
 
-        // at least %a%
-        // and not this one: %kernel.root_dir%/../web/
-        String parameterName = PsiElementUtils.getText(psiElement);
-        if(parameterName.length() < 3 || !(parameterName.startsWith("%") && parameterName.endsWith("%"))) {
-            return;
-        }
+        Application application = ApplicationManager.getApplication();
 
-        parameterName = parameterName.substring(1, parameterName.length() - 1);
+        final AnnotationPass annotationPass = application.runReadAction(new Computable<AnnotationPass>() {
+            @Override
+            public AnnotationPass compute() {
+                return annotationInfo.isUpToDate() ? new AnnotationPass(annotationInfo.getPsiFile()) : null;
+            }
+        });
 
-        String parameterValue = ServiceXmlParserFactory.getInstance(psiElement.getProject(), ParameterServiceParser.class).getParameterMap().get(parameterName);
-        if (null == parameterValue && !YamlHelper.getLocalParameterMap(psiElement).containsKey(parameterName)) {
-            holder.createWarningAnnotation(psiElement, "Missing Parameter");
+        if(annotationPass == null) {
+            return null;
         }
 
-    }
+        final List<PsiElement> tokens = annotationInfo.getTokens();
+        for(int i = 0; i < tokens.size(); i += TOKENS_PER_READ_ACTION) {
 
-    private void annotateService(@NotNull final PsiElement psiElement, @NotNull AnnotationHolder holder) {
-        if(!YamlElementPatternHelper.getServiceDefinition().accepts(psiElement) || !YamlElementPatternHelper.getInsideServiceKeyPattern().accepts(psiElement)) {
-            return;
-        }
+            final int start = i;
+            boolean upToDate = application.runReadAction(new Computable<Boolean>() {
+                @Override
+                public Boolean compute() {
 
-        String serviceName = PsiElementUtils.getText(psiElement).substring(1);
+                    // file changed between two read actions; a new pass is already scheduled
+                    if(!annotationInfo.isUpToDate()) {
+                        return false;
+                    }
 
-        // yaml strict=false syntax
-        if(serviceName.endsWith("=")) {
-            serviceName = serviceName.substring(0, serviceName.length() -1);
-        }
+                    for(PsiElement token: tokens.subList(start, Math.min(start + TOKENS_PER_READ_ACTION, tokens.size()))) {
+                        ProgressManager.checkCanceled();
+                        annotationPass.annotate(token);
+                    }
+
+                    return true;
+                }
+            });
 
-        String serviceClass = ServiceXmlParserFactory.getInstance(psiElement.getProject(), XmlServiceParser.class).getServiceMap().getMap().get(serviceName);
-        if (null == serviceClass && !YamlHelper.getLocalServiceMap(psiElement).containsKey(serviceName)) {
-            holder.createWarningAnnotation(psiElement, "Missing Service");
+            if(!upToDate) {
+                return null;
+            }
         }
 
+        return annotationPass.getProblems();
     }
 
-    private void annotateClass(@NotNull final PsiElement element, @NotNull AnnotationHolder holder) {
+    @Override
+    public void apply(@NotNull PsiFile file, List<Problem> problems, @NotNull AnnotationHolder holder) {
 
-        if(!((YamlElementPatternHelper.getSingleLineScalarKey("class", "factory_class").accepts(element) || YamlElementPatternHelper.getParameterClassPattern().accepts(element)) && YamlElementPatternHelper.getInsideServiceKeyPattern().accepts(element))) {
+        if(problems == null) {
             return;
         }
 
-        if(element.getText().contains("\\")) {
-            String className = PsiElementUtils.getText(element);
-            if(className.startsWith("\\")) {
-                className = "\\" + className;
+        for(Problem problem: problems) {
+            if(!problem.getElement().isValid()) {
+                continue;
             }
 
-            if(PhpElementsUtil.getClassInterfacePsiElements(element.getProject(), className).length == 0) {
-                holder.createWarningAnnotation(element, "Missing Class");
+            if(problem.isWeak()) {
+                holder.createWeakWarningAnnotation(problem.getElement(), problem.getMessage());
+            } else {
+                holder.createWarningAnnotation(problem.getElement(), problem.getMessage());
             }
         }
 
     }
 
+    public static class AnnotationInfo {
 
-    private void annotateConstructorArguments(@NotNull final PsiElement psiElement, @NotNull AnnotationHolder holder) {
+        private final PsiFile psiFile;
+        private final long modificationStamp;
+        private final List<PsiElement> tokens;
 
-
-        if(!PlatformPatterns.psiElement(YAMLTokenTypes.TEXT).accepts(psiElement)
-            && !PlatformPatterns.psiElement(YAMLTokenTypes.SCALAR_DSTRING).accepts(psiElement))
-        {
-            return;
+        public AnnotationInfo(PsiFile psiFile, List<PsiElement> tokens) {
+            this.psiFile = psiFile;
+            this.modificationStamp = psiFile.getModificationStamp();
+            this.tokens = tokens;
         }
 
-        // @TODO: simplify code checks
-
-        if(!(psiElement.getContext() instanceof YAMLArray)) {
-            return;
+        public PsiFile getPsiFile() {
+            return psiFile;
         }
 
-        YAMLArray yamlArray = (YAMLArray) psiElement.getContext();
-        if(!(yamlArray.getContext() instanceof YAMLCompoundValue)) {
-            return;
+        public List<PsiElement> getTokens() {
+            return tokens;
         }
 
-        YAMLCompoundValue yamlCompoundValue = (YAMLCompoundValue) yamlArray.getContext();
-        if(!(yamlCompoundValue.getContext() instanceof YAMLKeyValue)) {
-            return;
+        /**
+         * collected tokens still belong to the current file content; needs read access
+         */
+        public boolean isUpToDate() {
+            return this.psiFile.isValid() && this.psiFile.getModificationStamp() == this.modificationStamp;
         }
 
-        YAMLKeyValue yamlKeyValue = (YAMLKeyValue) yamlCompoundValue.getContext();
-        if(yamlKeyValue == null || !yamlKeyValue.getKeyText().equals("arguments")) {
-            return;
-        }
+    }
 
-        YAMLKeyValue classKeyValue = YamlHelper.getYamlKeyValue(yamlKeyValue.getContext(), "class");
-        if(classKeyValue == null) {
-            return;
+    public static class Problem {
+
+        private final PsiElement element;
+        private final String message;
+        private final boolean weak;
+
+        public Problem(PsiElement element, String message, boolean weak) {
+            this.element = element;
+            this.message = message;
+            this.weak = weak;
         }
 
-        PhpClass serviceClass = ServiceUtil.getResolvedClassDefinition(psiElement.getProject(), classKeyValue.getValueText());
-        if(serviceClass == null) {
-            return;
+        public PsiElement getElement() {
+            return element;
         }
 
-        Method constructor = serviceClass.getConstructor();
-        if(constructor == null) {
-            return;
+        public String getMessage() {
+            return message;
         }
 
-        attachInstanceAnnotation(psiElement, holder, yamlArray, constructor);
+        public boolean isWeak() {
+            return weak;
+        }
 
     }
 
-    private void annotateCallsArguments(@NotNull final PsiElement psiElement, @NotNull AnnotationHolder holder) {
+    /**
+     * One annotation run over a file; lookups are memoized for the pass only, so they never get stale
+     */
+    private static class AnnotationPass {
 
+        private final Project project;
+        private final List<Problem> problems = new ArrayList<Problem>();
 
-        if(!PlatformPatterns.psiElement(YAMLTokenTypes.TEXT).accepts(psiElement)
-            && !PlatformPatterns.psiElement(YAMLTokenTypes.SCALAR_DSTRING).accepts(psiElement))
-        {
-            return;
-        }
+        private final Map<String, String> serviceMap;
+        private final Map<String, String> parameterMap;
 
-        // @TODO: simplify code checks
-        if(!(psiElement.getContext() instanceof YAMLArray)) {
-            return;
-        }
+        private final Map<String, Boolean> knownClasses = new HashMap<String, Boolean>();
+        private final Map<String, PhpClass> resolvedClasses = new HashMap<String, PhpClass>();
+        private final Map<String, PhpClass> classInterfaces = new HashMap<String, PhpClass>();
 
-        YAMLArray yamlCallParameterArray = (YAMLArray) psiElement.getContext();
-        if(!(yamlCallParameterArray.getContext() instanceof YAMLArray)) {
-            return;
+        public AnnotationPass(PsiFile psiFile) {
+            this.project = psiFile.getProject();
+            this.serviceMap = ServiceIndex.getServiceMap(this.project).getMap();
+            this.parameterMap = ServiceXmlParserFactory.getInstance(this.project, ParameterServiceParser.class).getParameterMap();
         }
 
-        YAMLArray yamlCallArray = (YAMLArray) yamlCallParameterArray.getContext();
-        if(!(yamlCallArray.getContext() instanceof YAMLSequence)) {
-            return;
+        public List<Problem> getProblems() {
+            return this.problems;
         }
 
-        ArrayList<PsiElement> methodParameter = YamlHelper.getYamlArrayValues(yamlCallArray);
-        if(methodParameter.size() < 2) {
-            return;
-        }
+        /**
+         * @param psiElement token inside services or parameters
+         */
+        public void annotate(PsiElement psiElement) {
 
-        String methodName = PsiElementUtils.getText(methodParameter.get(0));
+            this.annotateParameter(psiElement);
+            this.annotateClass(psiElement);
+            this.annotateService(psiElement);
 
-        YAMLSequence yamlSequence = (YAMLSequence) yamlCallArray.getContext();
-        if(!(yamlSequence.getContext() instanceof YAMLCompoundValue)) {
-            return;
-        }
+            // only match inside service definitions
+            if(!SCALAR.accepts(psiElement) || !INSIDE_SERVICES.accepts(psiElement)) {
+                return;
+            }
 
-        YAMLCompoundValue yamlCompoundValue = (YAMLCompoundValue) yamlSequence.getContext();
-        if(!(yamlCompoundValue.getContext() instanceof YAMLKeyValue)) {
-            return;
+            this.annotateConstructorArguments(psiElement);
+            this.annotateCallsArguments(psiElement);
+            this.annotateCallMethod(psiElement);
         }
 
-        YAMLCompoundValue serviceDefinition = PsiTreeUtil.getParentOfType(yamlCompoundValue, YAMLCompoundValue.class);
-        YAMLKeyValue classKeyValue = YamlHelper.getYamlKeyValue(serviceDefinition, "class");
-        if(classKeyValue == null) {
-            return;
-        }
+        private void annotateParameter(@NotNull final PsiElement psiElement) {
+            if(!PARAMETER_DEFINITION.accepts(psiElement)) {
+                return;
+            }
 
-        PhpClass serviceClass = ServiceUtil.getResolvedClassDefinition(psiElement.getProject(), classKeyValue.getValueText());
-        if(serviceClass == null) {
-            return;
-        }
+            // at least %a%
+            // and not this one: %kernel.root_dir%/../web/
+            String parameterName = PsiElementUtils.getText(psiElement);
+            if(parameterName.length() < 3 || !(parameterName.startsWith("%") && parameterName.endsWith("%"))) {
+                return;
+            }
+
+            parameterName = parameterName.substring(1, parameterName.length() - 1);
+
+            String parameterValue = this.parameterMap.get(parameterName);
+            if (null == parameterValue && !YamlHelper.getLocalParameterMap(psiElement).containsKey(parameterName)) {
+                this.problems.add(new Problem(psiElement, "Missing Parameter", false));
+            }
 
-        Method method = PhpElementsUtil.getClassMethod(serviceClass, methodName);
-        if(method == null) {
-            return;
         }
 
-        attachInstanceAnnotation(psiElement, holder, yamlCallParameterArray, method);
+        private void annotateService(@NotNull final PsiElement psiElement) {
+            if(!SERVICE_DEFINITION.accepts(psiElement)) {
+                return;
+            }
+
+            String serviceName = PsiElementUtils.getText(psiElement).substring(1);
 
-    }
+            // yaml strict=false syntax
+            if(serviceName.endsWith("=")) {
+                serviceName = serviceName.substring(0, serviceName.length() -1);
+            }
 
-    private void attachInstanceAnnotation(PsiElement psiElement, AnnotationHolder holder, YAMLArray yamlArray, Method constructor) {
-        int parameterIndex = YamlHelper.getYamlParameter(yamlArray, psiElement);
-        if(parameterIndex == -1) {
-            return;
-        }
+            String serviceClass = this.serviceMap.get(serviceName);
+            if (null == serviceClass && !YamlHelper.getLocalServiceMap(psiElement).containsKey(serviceName)) {
+                this.problems.add(new Problem(psiElement, "Missing Service", false));
+            }
 
-        PhpClass serviceParameterClass = ServiceUtil.getResolvedClassDefinition(psiElement.getProject(), getServiceName(psiElement));
-        if(serviceParameterClass == null) {
-            return;
         }
 
-        Parameter[] constructorParameter = constructor.getParameters();
-        if(parameterIndex >= constructorParameter.length) {
-            return;
-        }
+        private void annotateClass(@NotNull final PsiElement element) {
 
-        PhpClass expectedClass = PhpElementsUtil.getClassInterface(psiElement.getProject(), constructorParameter[parameterIndex].getDeclaredType().toString());
-        if(expectedClass == null) {
-            return;
-        }
+            if(!(CLASS_KEY.accepts(element) || PARAMETER_CLASS.accepts(element))) {
+                return;
+            }
 
-        if(!new Symfony2InterfacesUtil().isInstanceOf(serviceParameterClass, expectedClass)) {
-            holder.createWeakWarningAnnotation(psiElement, "Expect instance of: " + expectedClass.getPresentableFQN());
-        }
-    }
+            if(element.getText().contains("\\")) {
+                String className = PsiElementUtils.getText(element);
+                if(className.startsWith("\\")) {
+                    className = "\\" + className;
+                }
 
-    private void annotateCallMethod(@NotNull final PsiElement psiElement, @NotNull AnnotationHolder holder) {
+                if(!this.hasClass(className)) {
+                    this.problems.add(new Problem(element, "Missing Class", false));
+                }
+            }
 
-        if((!PlatformPatterns.psiElement(YAMLTokenTypes.TEXT).accepts(psiElement)
-            && !PlatformPatterns.psiElement(YAMLTokenTypes.SCALAR_DSTRING).accepts(psiElement)))
-        {
-            return;
         }
 
-        if(!YamlElementPatternHelper.getInsideKeyValue("calls").accepts(psiElement)){
-            return;
+        private void annotateConstructorArguments(@NotNull final PsiElement psiElement) {
+
+            // @TODO: simplify code checks
+
+            if(!(psiElement.getContext() instanceof YAMLArray)) {
+                return;
+            }
+
+            YAMLArray yamlArray = (YAMLArray) psiElement.getContext();
+            if(!(yamlArray.getContext() instanceof YAMLCompoundValue)) {
+                return;
+            }
+
+            YAMLCompoundValue yamlCompoundValue = (YAMLCompoundValue) yamlArray.getContext();
+            if(!(yamlCompoundValue.getContext() instanceof YAMLKeyValue)) {
+                return;
+            }
+
+            YAMLKeyValue yamlKeyValue = (YAMLKeyValue) yamlCompoundValue.getContext();
+            if(yamlKeyValue == null || !yamlKeyValue.getKeyText().equals("arguments")) {
+                return;
+            }
+
+            YAMLKeyValue classKeyValue = YamlHelper.getYamlKeyValue(yamlKeyValue.getContext(), "class");
+            if(classKeyValue == null) {
+                return;
+            }
+
+            PhpClass serviceClass = this.getResolvedClassDefinition(classKeyValue.getValueText());
+            if(serviceClass == null) {
+                return;
+            }
+
+            Method constructor = serviceClass.getConstructor();
+            if(constructor == null) {
+                return;
+            }
+
+            attachInstanceAnnotation(psiElement, yamlArray, constructor);
+
         }
 
-        if(psiElement.getParent() == null || !(psiElement.getParent().getContext() instanceof YAMLSequence)) {
-            return;
+        private void annotateCallsArguments(@NotNull final PsiElement psiElement) {
+
+            // @TODO: simplify code checks
+            if(!(psiElement.getContext() instanceof YAMLArray)) {
+                return;
+            }
+
+            YAMLArray yamlCallParameterArray = (YAMLArray) psiElement.getContext();
+            if(!(yamlCallParameterArray.getContext() instanceof YAMLArray)) {
+                return;
+            }
+
+            YAMLArray yamlCallArray = (YAMLArray) yamlCallParameterArray.getContext();
+            if(!(yamlCallArray.getContext() instanceof YAMLSequence)) {
+                return;
+            }
+
+            ArrayList<PsiElement> methodParameter = YamlHelper.getYamlArrayValues(yamlCallArray);
+            if(methodParameter.size() < 2) {
+                return;
+            }
+
+            String methodName = PsiElementUtils.getText(methodParameter.get(0));
+
+            YAMLSequence yamlSequence = (YAMLSequence) yamlCallArray.getContext();
+            if(!(yamlSequence.getContext() instanceof YAMLCompoundValue)) {
+                return;
+            }
+
+            YAMLCompoundValue yamlCompoundValue = (YAMLCompoundValue) yamlSequence.getContext();
+            if(!(yamlCompoundValue.getContext() instanceof YAMLKeyValue)) {
+                return;
+            }
+
+            YAMLCompoundValue serviceDefinition = PsiTreeUtil.getParentOfType(yamlCompoundValue, YAMLCompoundValue.class);
+            YAMLKeyValue classKeyValue = YamlHelper.getYamlKeyValue(serviceDefinition, "class");
+            if(classKeyValue == null) {
+                return;
+            }
+
+            PhpClass serviceClass = this.getResolvedClassDefinition(classKeyValue.getValueText());
+            if(serviceClass == null) {
+                return;
+            }
+
+            Method method = PhpElementsUtil.getClassMethod(serviceClass, methodName);
+            if(method == null) {
+                return;
+            }
+
+            attachInstanceAnnotation(psiElement, yamlCallParameterArray, method);
+
         }
 
-        YAMLKeyValue callYamlKeyValue = PsiTreeUtil.getParentOfType(psiElement, YAMLKeyValue.class);
-        if(callYamlKeyValue == null) {
-            return;
+        private void attachInstanceAnnotation(PsiElement psiElement, YAMLArray yamlArray, Method constructor) {
+            int parameterIndex = YamlHelper.getYamlParameter(yamlArray, psiElement);
+            if(parameterIndex == -1) {
+                return;
+            }
+
+            PhpClass serviceParameterClass = this.getResolvedClassDefinition(getServiceName(psiElement));
+            if(serviceParameterClass == null) {
+                return;
+            }
+
+            Parameter[] constructorParameter = constructor.getParameters();
+            if(parameterIndex >= constructorParameter.length) {
+                return;
+            }
+
+            PhpClass expectedClass = this.getClassInterface(constructorParameter[parameterIndex].getDeclaredType().toString());
+            if(expectedClass == null) {
+                return;
+            }
+
+            if(!new Symfony2InterfacesUtil().isInstanceOf(serviceParameterClass, expectedClass)) {
+                this.problems.add(new Problem(psiElement, "Expect instance of: " + expectedClass.getPresentableFQN(), true));
+            }
         }
 
-        YAMLKeyValue classKeyValue = YamlHelper.getYamlKeyValue(callYamlKeyValue.getContext(), "class");
-        if(classKeyValue == null) {
-            return;
+        private void annotateCallMethod(@NotNull final PsiElement psiElement) {
+
+            if(!INSIDE_CALLS.accepts(psiElement)){
+                return;
+            }
+
+            if(psiElement.getParent() == null || !(psiElement.getParent().getContext() instanceof YAMLSequence)) {
+                return;
+            }
+
+            YAMLKeyValue callYamlKeyValue = PsiTreeUtil.getParentOfType(psiElement, YAMLKeyValue.class);
+            if(callYamlKeyValue == null) {
+                return;
+            }
+
+            YAMLKeyValue classKeyValue = YamlHelper.getYamlKeyValue(callYamlKeyValue.getContext(), "class");
+            if(classKeyValue == null) {
+                return;
+            }
+
+            PhpClass serviceParameterClass = this.getResolvedClassDefinition(getServiceName(classKeyValue.getValue()));
+            if(serviceParameterClass == null) {
+                return;
+            }
+
+            if(PhpElementsUtil.getClassMethod(serviceParameterClass, PsiElementUtils.trimQuote(psiElement.getText())) == null) {
+                this.problems.add(new Problem(psiElement, "Unknown method", true));
+            }
+
         }
 
-        PhpClass serviceParameterClass = ServiceUtil.getResolvedClassDefinition(psiElement.getProject(), getServiceName(classKeyValue.getValue()));
-        if(serviceParameterClass == null) {
-            return;
+        private boolean hasClass(String className) {
+
+            Boolean known = this.knownClasses.get(className);
+            if(known == null) {
+                known = PhpElementsUtil.getClassInterfacePsiElements(this.project, className).length > 0;
+                this.knownClasses.put(className, known);
+            }
+
+            return known;
         }
 
-        if(PhpElementsUtil.getClassMethod(serviceParameterClass, PsiElementUtils.trimQuote(psiElement.getText())) == null) {
-            holder.createWeakWarningAnnotation(psiElement, "Unknown method");
+        @Nullable
+        private PhpClass getResolvedClassDefinition(String className) {
+
+            if(!this.resolvedClasses.containsKey(className)) {
+                this.resolvedClasses.put(className, ServiceUtil.getResolvedClassDefinition(this.project, className));
+            }
+
+            return this.resolvedClasses.get(className);
         }
 
-    }
+        @Nullable
+        private PhpClass getClassInterface(String className) {
 
-    private String getServiceName(PsiElement psiElement) {
-        String serviceName = PsiElementUtils.getText(psiElement);
-        if(serviceName.startsWith("@")) {
-            serviceName = serviceName.substring(1);
+            if(!this.classInterfaces.containsKey(className)) {
+                this.classInterfaces.put(className, PhpElementsUtil.getClassInterface(this.project, className));
+            }
+
+            return this.classInterfaces.get(className);
         }
 
-        // yaml strict=false syntax
-        if(serviceName.endsWith("=")) {
-            serviceName = serviceName.substring(0, serviceName.length() -1);
+        private String getServiceName(PsiElement psiElement) {
+            String serviceName = PsiElementUtils.getText(psiElement);
+            if(serviceName.startsWith("@")) {
+                serviceName = serviceName.substring(1);
+            }
+
+            // yaml strict=false syntax
+            if(serviceName.endsWith("=")) {
+                serviceName = serviceName.substring(0, serviceName.length() -1);
+            }
+
+            return serviceName;
         }
 
-        return serviceName;
     }
-}
\ No newline at end of file
+
+}
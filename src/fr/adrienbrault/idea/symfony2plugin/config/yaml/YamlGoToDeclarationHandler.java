@@ -9,7 +9,7 @@ import com.jetbrains.twig.TwigFile;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
 import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
@@ -78,7 +78,7 @@ public class YamlGoToDeclarationHandler implements GotoDeclarationHandler {
             serviceId = serviceId.substring(0, serviceId.length() -1);
         }
 
-        String serviceClass = ServiceXmlParserFactory.getInstance(psiElement.getProject(), XmlServiceParser.class).getServiceMap().getMap().get(serviceId.toLowerCase());
+        String serviceClass = ServiceIndex.getServiceMap(psiElement.getProject()).getMap().get(serviceId.toLowerCase());
         if (null == serviceClass) {
             return new PsiElement[]{};
         }
@@ -105,8 +105,7 @@ public class YamlGoToDeclarationHandler implements GotoDeclarationHandler {
     }
 
     protected List<TwigFile> templateGoto(PsiElement psiElement, String templateName) {
-        Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(psiElement.getProject());
-        TwigFile twigFile = twigFilesByName.get(templateName);
+        TwigFile twigFile = TwigHelper.getTwigFileByName(psiElement.getProject(), templateName);
         if (null == twigFile) {
             return Collections.emptyList();
         }
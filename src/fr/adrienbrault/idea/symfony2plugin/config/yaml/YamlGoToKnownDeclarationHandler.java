@@ -8,7 +8,6 @@ import com.intellij.patterns.StandardPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
-import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
@@ -112,7 +111,7 @@ public class YamlGoToKnownDeclarationHandler implements GotoDeclarationHandler {
 
         String bundleName = text.substring(1, text.indexOf("/"));
 
-        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(PhpIndex.getInstance(psiElement.getProject())).getBundle(bundleName);
+        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(psiElement.getProject()).getBundle(bundleName);
 
         if(symfonyBundle == null) {
             return;
@@ -8,7 +8,6 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 
 
@@ -26,7 +25,7 @@ public class PhpServiceAnnotator implements Annotator {
             return;
         }
 
-        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(element.getProject(), XmlServiceParser.class).getServiceMap();
+        ServiceMap serviceMap = ServiceIndex.getServiceMap(element.getProject());
 
         String serviceName = Symfony2InterfacesUtil.getFirstArgumentStringValue(methodReference);
         if(serviceMap.getMap().containsKey(serviceName))  {
@@ -6,7 +6,6 @@ import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.psi.PsiElement;
 import com.intellij.util.ProcessingContext;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.jetbrains.annotations.NotNull;
 
@@ -26,7 +25,7 @@ public class ServiceCompletionProvider extends CompletionProvider<CompletionPara
             return;
         }
 
-        Map<String,String> map = ServiceXmlParserFactory.getInstance(element.getProject(), XmlServiceParser.class).getServiceMap().getMap();
+        Map<String,String> map = ServiceIndex.getServiceMap(element.getProject()).getMap();
 
         for( Map.Entry<String, String> entry: map.entrySet() ) {
             resultSet.addElement(
@@ -0,0 +1,83 @@
+package fr.adrienbrault.idea.symfony2plugin.dic;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A service as defined in a services.yml or services.xml source file, with the offset of its definition
+ */
+public class ServiceDefinition {
+
+    private final String id;
+
+    @Nullable
+    private final String className;
+
+    private final boolean isPublic;
+
+    private final List<String> tags;
+
+    private final int offset;
+
+    public ServiceDefinition(String id, @Nullable String className, boolean isPublic, List<String> tags, int offset) {
+        this.id = id;
+        this.className = className;
+        this.isPublic = isPublic;
+        this.tags = tags;
+        this.offset = offset;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * class as written in the file, may be a parameter like "%foo.class%"; null for aliases or services without class
+     */
+    @Nullable
+    public String getClassName() {
+        return className;
+    }
+
+    public boolean isPublic() {
+        return isPublic;
+    }
+
+    public List<String> getTags() {
+        return Collections.unmodifiableList(tags);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * index values are compared on reindexing, so all fields count
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof ServiceDefinition)) {
+            return false;
+        }
+
+        ServiceDefinition serviceDefinition = (ServiceDefinition) o;
+        return this.isPublic == serviceDefinition.isPublic
+            && this.offset == serviceDefinition.offset
+            && this.id.equals(serviceDefinition.id)
+            && (this.className == null ? serviceDefinition.className == null : this.className.equals(serviceDefinition.className))
+            && this.tags.equals(serviceDefinition.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.id.hashCode();
+        result = 31 * result + (this.className != null ? this.className.hashCode() : 0);
+        result = 31 * result + (this.isPublic ? 1 : 0);
+        result = 31 * result + this.tags.hashCode();
+        result = 31 * result + this.offset;
+        return result;
+    }
+
+}
@@ -0,0 +1,316 @@
+package fr.adrienbrault.idea.symfony2plugin.dic;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.psi.YAMLDocument;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowercase service id to its definitions in yaml and xml service files: "services: { foo: { class: Foo } }", "<container><services><service id="foo"/>"
+ *
+ * Definitions only depend on their own file, so the platform keeps the index up to date per file;
+ * finding a service no longer needs the psi of all config files in the project.
+ */
+public class ServiceDefinitionIndex implements FileBasedIndexExtension<String, ServiceDefinition> {
+
+    public static final ID<String, ServiceDefinition> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.service_definitions");
+
+    private final KeyDescriptor<String> keyDescriptor = new EnumeratorStringDescriptor();
+
+    @NotNull
+    @Override
+    public ID<String, ServiceDefinition> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, ServiceDefinition, FileContent> getIndexer() {
+        return new DataIndexer<String, ServiceDefinition, FileContent>() {
+            @NotNull
+            @Override
+            public Map<String, ServiceDefinition> map(FileContent inputData) {
+
+                // most yaml and xml files are no service files, dont build psi for them
+                if(!inputData.getContentAsText().toString().contains("services")) {
+                    return Collections.emptyMap();
+                }
+
+                Map<String, ServiceDefinition> services = new HashMap<String, ServiceDefinition>();
+
+                PsiFile psiFile = inputData.getPsiFile();
+                if(psiFile instanceof YAMLFile) {
+                    YAMLDocument yamlDocument = PsiTreeUtil.findChildOfType(psiFile, YAMLDocument.class);
+                    if(yamlDocument != null) {
+                        visitYamlServices(yamlDocument, services);
+                    }
+                } else if(psiFile instanceof XmlFile) {
+                    XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+                    if(rootTag != null && "container".equals(rootTag.getName())) {
+                        visitXmlServices(rootTag, services);
+                    }
+                }
+
+                return services;
+            }
+        };
+    }
+
+    /**
+     * services:
+     *   foo:
+     *     class: Foo
+     *     public: false
+     *     tags:
+     *       - { name: kernel.event_listener }
+     *   bar: @foo
+     */
+    private static void visitYamlServices(YAMLDocument yamlDocument, Map<String, ServiceDefinition> services) {
+
+        YAMLKeyValue servicesKeyValue = getYamlChild(yamlDocument, "services");
+        if(servicesKeyValue == null) {
+            return;
+        }
+
+        YAMLKeyValue[] yamlServices = PsiTreeUtil.getChildrenOfType(servicesKeyValue.getValue(), YAMLKeyValue.class);
+        if(yamlServices == null) {
+            return;
+        }
+
+        for(YAMLKeyValue yamlService: yamlServices) {
+
+            String serviceId = yamlService.getKeyText();
+            if(serviceId.length() == 0) {
+                continue;
+            }
+
+            String className = null;
+            YAMLKeyValue classKeyValue = getYamlChild(yamlService.getValue(), "class");
+            if(classKeyValue != null && classKeyValue.getValue() != null) {
+                className = PsiElementUtils.trimQuote(classKeyValue.getValue().getText());
+            }
+
+            YAMLKeyValue publicKeyValue = getYamlChild(yamlService.getValue(), "public");
+            boolean isPublic = publicKeyValue == null || publicKeyValue.getValue() == null || !"false".equals(PsiElementUtils.trimQuote(publicKeyValue.getValue().getText()));
+
+            List<String> tags = new ArrayList<String>();
+            YAMLKeyValue tagsKeyValue = getYamlChild(yamlService.getValue(), "tags");
+            if(tagsKeyValue != null) {
+                for(YAMLKeyValue tagKeyValue: PsiTreeUtil.findChildrenOfType(tagsKeyValue, YAMLKeyValue.class)) {
+                    if("name".equals(tagKeyValue.getKeyText()) && tagKeyValue.getValue() != null) {
+                        tags.add(PsiElementUtils.trimQuote(tagKeyValue.getValue().getText()));
+                    }
+                }
+            }
+
+            services.put(serviceId.toLowerCase(), new ServiceDefinition(serviceId, className, isPublic, tags, yamlService.getTextOffset()));
+        }
+
+    }
+
+    @Nullable
+    private static YAMLKeyValue getYamlChild(@Nullable PsiElement psiElement, String keyName) {
+
+        YAMLKeyValue[] yamlKeyValues = PsiTreeUtil.getChildrenOfType(psiElement, YAMLKeyValue.class);
+        if(yamlKeyValues == null) {
+            return null;
+        }
+
+        for(YAMLKeyValue yamlKeyValue: yamlKeyValues) {
+            if(keyName.equals(yamlKeyValue.getKeyText())) {
+                return yamlKeyValue;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * <container><services><service id="foo" class="Foo" public="false"><tag name="kernel.event_listener"/></service></services></container>
+     */
+    private static void visitXmlServices(XmlTag containerTag, Map<String, ServiceDefinition> services) {
+
+        for(XmlTag servicesTag: containerTag.findSubTags("services")) {
+            for(XmlTag serviceTag: servicesTag.findSubTags("service")) {
+
+                String serviceId = serviceTag.getAttributeValue("id");
+                if(serviceId == null || serviceId.length() == 0) {
+                    continue;
+                }
+
+                List<String> tags = new ArrayList<String>();
+                for(XmlTag tag: serviceTag.findSubTags("tag")) {
+                    String tagName = tag.getAttributeValue("name");
+                    if(tagName != null) {
+                        tags.add(tagName);
+                    }
+                }
+
+                boolean isPublic = !"false".equals(serviceTag.getAttributeValue("public"));
+                services.put(serviceId.toLowerCase(), new ServiceDefinition(serviceId, serviceTag.getAttributeValue("class"), isPublic, tags, serviceTag.getTextOffset()));
+            }
+        }
+
+    }
+
+    /**
+     * yaml and xml files are indexed
+     */
+    public static boolean isServiceFileName(@Nullable String fileName) {
+        return fileName != null && (fileName.endsWith(".yml") || fileName.endsWith(".yaml") || fileName.endsWith(".xml"));
+    }
+
+    /**
+     * "services:" on the top level of a yaml file or "<container><services>"; only top level elements are visited
+     */
+    public static boolean hasServicesRoot(PsiFile psiFile) {
+
+        if(psiFile instanceof YAMLFile) {
+            YAMLDocument yamlDocument = PsiTreeUtil.findChildOfType(psiFile, YAMLDocument.class);
+            return yamlDocument != null && getYamlChild(yamlDocument, "services") != null;
+        }
+
+        if(psiFile instanceof XmlFile) {
+            XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+            return rootTag != null && "container".equals(rootTag.getName()) && rootTag.findFirstSubTag("services") != null;
+        }
+
+        return false;
+    }
+
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.keyDescriptor;
+    }
+
+    @Override
+    public DataExternalizer<ServiceDefinition> getValueExternalizer() {
+        return new DataExternalizer<ServiceDefinition>() {
+            @Override
+            public void save(DataOutput out, ServiceDefinition value) throws IOException {
+                out.writeUTF(value.getId());
+                out.writeBoolean(value.getClassName() != null);
+                if(value.getClassName() != null) {
+                    out.writeUTF(value.getClassName());
+                }
+                out.writeBoolean(value.isPublic());
+                out.writeInt(value.getTags().size());
+                for(String tag: value.getTags()) {
+                    out.writeUTF(tag);
+                }
+                out.writeInt(value.getOffset());
+            }
+
+            @Override
+            public ServiceDefinition read(DataInput in) throws IOException {
+                String id = in.readUTF();
+                String className = in.readBoolean() ? in.readUTF() : null;
+                boolean isPublic = in.readBoolean();
+
+                int tagCount = in.readInt();
+                List<String> tags = new ArrayList<String>(tagCount);
+                for(int i = 0; i < tagCount; i++) {
+                    tags.add(in.readUTF());
+                }
+
+                return new ServiceDefinition(id, className, isPublic, tags, in.readInt());
+            }
+        };
+    }
+
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new FileBasedIndex.InputFilter() {
+            @Override
+            public boolean acceptInput(VirtualFile file) {
+                return isServiceFileName(file.getName());
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    public int getCacheSize() {
+        return DEFAULT_CACHE_SIZE;
+    }
+
+    /**
+     * yaml key or xml service tag of all definitions of the given service ids
+     */
+    public static List<PsiElement> getServiceDefinitionTargets(Project project, Collection<String> serviceIds) {
+
+        final List<PsiElement> psiElements = new ArrayList<PsiElement>();
+        final PsiManager psiManager = PsiManager.getInstance(project);
+
+        for(String serviceId: serviceIds) {
+            FileBasedIndex.getInstance().processValues(KEY, serviceId.toLowerCase(), null, new FileBasedIndex.ValueProcessor<ServiceDefinition>() {
+                @Override
+                public boolean process(VirtualFile virtualFile, ServiceDefinition serviceDefinition) {
+                    PsiFile psiFile = psiManager.findFile(virtualFile);
+                    if(psiFile != null) {
+                        PsiElement psiElement = getDefinitionElement(psiFile, serviceDefinition.getOffset());
+                        if(psiElement != null) {
+                            psiElements.add(psiElement);
+                        }
+                    }
+                    return true;
+                }
+            }, GlobalSearchScope.projectScope(project));
+        }
+
+        return psiElements;
+    }
+
+    @Nullable
+    private static PsiElement getDefinitionElement(PsiFile psiFile, int offset) {
+
+        PsiElement psiElement = psiFile.findElementAt(offset);
+        if(psiElement == null) {
+            return null;
+        }
+
+        if(psiFile instanceof YAMLFile) {
+            return PsiTreeUtil.getParentOfType(psiElement, YAMLKeyValue.class);
+        }
+
+        return PsiTreeUtil.getParentOfType(psiElement, XmlTag.class);
+    }
+
+}
@@ -0,0 +1,225 @@
+package fr.adrienbrault.idea.symfony2plugin.dic;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.indexing.FileBasedIndex;
+import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Services of the compiled container merged with the live definitions of the service files in the project.
+ *
+ * The container stays the source of resolved classes; services which are only defined in source files yet,
+ * or with no container at all, are taken from the ServiceDefinitionIndex.
+ *
+ * As ModificationTracker it counts changes of yaml and xml files which hold a services root, and created, deleted, moved
+ * or renamed directories and service files, so the merged map is only built again if the container or a service file changed.
+ */
+public class ServiceIndex implements ModificationTracker {
+
+    private static final Key<CachedValue<ServiceMap>> SERVICE_MAP = new Key<CachedValue<ServiceMap>>("SYMFONY2_SERVICE_MAP");
+
+    protected Project project;
+
+    protected AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * service files with a services root while they are changed
+     */
+    protected Set<PsiFile> changingServiceFiles = new HashSet<PsiFile>();
+
+    public ServiceIndex(Project project) {
+        this.project = project;
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void beforeChildRemoval(@NotNull PsiTreeChangeEvent event) {
+                beforePsiChange(event);
+            }
+
+            @Override
+            public void beforeChildReplacement(@NotNull PsiTreeChangeEvent event) {
+                beforePsiChange(event);
+            }
+
+            @Override
+            public void beforeChildMovement(@NotNull PsiTreeChangeEvent event) {
+                beforePsiChange(event);
+            }
+
+            @Override
+            public void beforeChildrenChange(@NotNull PsiTreeChangeEvent event) {
+                beforePsiChange(event);
+            }
+
+            @Override
+            public void childAdded(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childMoved(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+        }, project);
+
+        // changes of files without loaded psi
+        project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+            @Override
+            public void after(List<? extends VFileEvent> events) {
+                for(VFileEvent event: events) {
+                    if(ServiceDefinitionIndex.isServiceFileName(event.getPath())) {
+                        ServiceIndex.this.modificationCount.incrementAndGet();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * an edit can remove the services root, so remember files which had one before
+     */
+    private void beforePsiChange(PsiTreeChangeEvent event) {
+
+        PsiFile psiFile = event.getFile();
+        if(psiFile != null && ServiceDefinitionIndex.isServiceFileName(psiFile.getName()) && ServiceDefinitionIndex.hasServicesRoot(psiFile)) {
+            this.changingServiceFiles.add(psiFile);
+        }
+
+    }
+
+    private void psiChanged(PsiTreeChangeEvent event) {
+
+        PsiFile psiFile = event.getFile();
+        if(psiFile == null) {
+            if(isStructureChange(event)) {
+                this.modificationCount.incrementAndGet();
+            }
+            return;
+        }
+
+        if(!ServiceDefinitionIndex.isServiceFileName(psiFile.getName())) {
+            return;
+        }
+
+        boolean hadServicesRoot = this.changingServiceFiles.remove(psiFile);
+        if(hadServicesRoot || ServiceDefinitionIndex.hasServicesRoot(psiFile)) {
+            this.modificationCount.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * events without file: a directory or possible service file created, deleted, moved or renamed
+     */
+    private static boolean isStructureChange(PsiTreeChangeEvent event) {
+
+        if(event.getParent() instanceof PsiDirectory || event.getOldParent() instanceof PsiDirectory) {
+            PsiElement child = event.getChild();
+            return child instanceof PsiDirectory || (child instanceof PsiFile && ServiceDefinitionIndex.isServiceFileName(((PsiFile) child).getName()));
+        }
+
+        if(PsiTreeChangeEvent.PROP_DIRECTORY_NAME.equals(event.getPropertyName())) {
+            return true;
+        }
+
+        if(PsiTreeChangeEvent.PROP_FILE_NAME.equals(event.getPropertyName())) {
+            return (event.getOldValue() instanceof String && ServiceDefinitionIndex.isServiceFileName((String) event.getOldValue()))
+                || (event.getNewValue() instanceof String && ServiceDefinitionIndex.isServiceFileName((String) event.getNewValue()));
+        }
+
+        return false;
+    }
+
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    public static ServiceIndex getInstance(Project project) {
+        return ServiceManager.getService(project, ServiceIndex.class);
+    }
+
+    public static ServiceMap getServiceMap(final Project project) {
+
+        // the factory checks the container files on access and bumps its modification count if they changed
+        ServiceXmlParserFactory.getInstance(project).parser(XmlServiceParser.class);
+
+        return CachedValuesManager.getManager(project).getCachedValue(project, SERVICE_MAP, new CachedValueProvider<ServiceMap>() {
+            @Override
+            public Result<ServiceMap> compute() {
+                return Result.create(
+                    buildServiceMap(project),
+                    ServiceXmlParserFactory.getInstance(project),
+                    ServiceIndex.getInstance(project)
+                );
+            }
+        }, false);
+    }
+
+    private static ServiceMap buildServiceMap(Project project) {
+
+        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap();
+
+        FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+
+        // ids known by the container are not loaded, so in a warm project only new services are
+        List<ServiceDefinition> serviceDefinitions = new ArrayList<ServiceDefinition>();
+        for(String serviceId: fileBasedIndex.getAllKeys(ServiceDefinitionIndex.KEY, project)) {
+            if(!serviceMap.getMap().containsKey(serviceId)) {
+                serviceDefinitions.addAll(fileBasedIndex.getValues(ServiceDefinitionIndex.KEY, serviceId, scope));
+            }
+        }
+
+        if(serviceDefinitions.size() == 0) {
+            return serviceMap;
+        }
+
+        return serviceMap.withDefinitions(serviceDefinitions, ServiceXmlParserFactory.getInstance(project, ParameterServiceParser.class).getParameterMap());
+    }
+
+}
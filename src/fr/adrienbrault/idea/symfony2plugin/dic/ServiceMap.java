@@ -1,9 +1,14 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
+import fr.adrienbrault.idea.symfony2plugin.util.dict.CompactStringMap;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -11,17 +16,52 @@ import java.util.Map;
  */
 public class ServiceMap {
 
+    /**
+     * One id table for all services; map and publicMap are views on it selected by a bitset.
+     * A service is stored with one class, if both maps disagree the class of map wins.
+     */
+    private CompactStringMap services;
     private Map<String, String> map;
     private Map<String, String> publicMap;
 
+    /**
+     * class name with leading backslash to all service ids using it; ids are in table order, not in order of definition
+     */
+    private Map<String, List<String>> classServiceIds = new HashMap<String, List<String>>();
+
     public ServiceMap(Map<String, String> map, Map<String, String> publicMap) {
-        this.map = Collections.unmodifiableMap(map);
-        this.publicMap = Collections.unmodifiableMap(publicMap);
+
+        Map<String, String> services = new HashMap<String, String>(publicMap);
+        services.putAll(map);
+        this.services = new CompactStringMap(services);
+
+        this.map = this.services.view(getSlots(this.services, map));
+        this.publicMap = this.services.view(getSlots(this.services, publicMap));
+
+        for (Map.Entry<String, String> entry : this.map.entrySet()) {
+            List<String> serviceIds = this.classServiceIds.get(entry.getValue());
+            if(serviceIds == null) {
+                serviceIds = new ArrayList<String>();
+                this.classServiceIds.put(entry.getValue(), serviceIds);
+            }
+            serviceIds.add(entry.getKey());
+        }
+    }
+
+    private static BitSet getSlots(CompactStringMap services, Map<String, String> map) {
+        BitSet slots = new BitSet();
+        for(String serviceId: map.keySet()) {
+            int slot = services.indexOf(serviceId);
+            if(slot >= 0) {
+                slots.set(slot);
+            }
+        }
+
+        return slots;
     }
 
     public ServiceMap() {
-       this.map = new HashMap<String, String>();
-       this.publicMap = new HashMap<String, String>();
+        this(Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap());
     }
 
     public Map<String, String> getMap() {
@@ -32,20 +72,74 @@ public class ServiceMap {
         return publicMap;
     }
 
+    /**
+     * New map with all services of this one and source definitions it does not know yet;
+     * "%foo.class%" is resolved with the given parameters, definitions without a resolvable class are skipped
+     */
+    public ServiceMap withDefinitions(Collection<ServiceDefinition> serviceDefinitions, Map<String, String> parameters) {
+
+        Map<String, String> map = null;
+        Map<String, String> publicMap = null;
+
+        for(ServiceDefinition serviceDefinition: serviceDefinitions) {
+
+            String serviceId = serviceDefinition.getId().toLowerCase();
+            if(this.map.containsKey(serviceId) || (map != null && map.containsKey(serviceId))) {
+                continue;
+            }
+
+            String className = serviceDefinition.getClassName();
+            if(className != null && className.length() > 2 && className.startsWith("%") && className.endsWith("%")) {
+                className = parameters.get(className.substring(1, className.length() - 1).toLowerCase());
+            }
+
+            if(className == null || className.length() == 0 || className.contains("%")) {
+                continue;
+            }
+
+            if(!className.startsWith("\\")) {
+                className = "\\" + className;
+            }
+
+            // most calls find nothing new, only copy if needed
+            if(map == null) {
+                map = new HashMap<String, String>(this.map);
+                publicMap = new HashMap<String, String>(this.publicMap);
+            }
+
+            map.put(serviceId, className);
+            if(serviceDefinition.isPublic()) {
+                publicMap.put(serviceId, className);
+            }
+        }
+
+        return map == null ? this : new ServiceMap(map, publicMap);
+    }
+
+    /**
+     * Any service id for a class; if several services use it, which one is not defined
+     */
     @Nullable
     public String resolveClassName(String findValue) {
+        Collection<String> serviceIds = this.resolveClassNames(findValue);
+        return serviceIds.size() > 0 ? serviceIds.iterator().next() : null;
+    }
+
+    /**
+     * All service ids for a class, in no particular order
+     */
+    public Collection<String> resolveClassNames(String findValue) {
 
         if(!findValue.startsWith("\\")) {
             findValue = "\\" + findValue;
         }
 
-        for (Map.Entry<String, String> entry : this.getMap().entrySet()) {
-            if (entry.getValue().equals(findValue)) {
-                return entry.getKey();
-            }
+        List<String> serviceIds = this.classServiceIds.get(findValue);
+        if(serviceIds == null) {
+            return Collections.emptyList();
         }
 
-        return null;
+        return Collections.unmodifiableList(serviceIds);
     }
 
 }
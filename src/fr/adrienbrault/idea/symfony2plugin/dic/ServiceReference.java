@@ -8,7 +8,6 @@ import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.php.lang.psi.elements.StringLiteralExpression;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -35,7 +34,7 @@ public class ServiceReference extends PsiPolyVariantReferenceBase<PsiElement> {
     @Override
     public ResolveResult[] multiResolve(boolean incompleteCode) {
         // Return the PsiElement for the class corresponding to the serviceId
-        String serviceClass = ServiceXmlParserFactory.getInstance(getElement().getProject(), XmlServiceParser.class).getServiceMap().getMap().get(serviceId.toLowerCase());
+        String serviceClass = ServiceIndex.getServiceMap(getElement().getProject()).getMap().get(serviceId.toLowerCase());
 
         if (null == serviceClass) {
             return new ResolveResult[]{};
@@ -49,7 +48,7 @@ public class ServiceReference extends PsiPolyVariantReferenceBase<PsiElement> {
     @Override
     public Object[] getVariants() {
 
-        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(getElement().getProject(), XmlServiceParser.class).getServiceMap();
+        ServiceMap serviceMap = ServiceIndex.getServiceMap(getElement().getProject());
         PhpIndex phpIndex = PhpIndex.getInstance(getElement().getProject());
 
         List<LookupElement> results = new ArrayList<LookupElement>();
@@ -10,7 +10,6 @@ import com.jetbrains.php.lang.psi.resolve.types.PhpTypeProvider2;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2InterfacesUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
@@ -84,7 +83,7 @@ public class SymfonyContainerTypeProvider implements PhpTypeProvider2 {
 
         // finally search the classes
         if(new Symfony2InterfacesUtil().isContainerGetCall((Method) phpNamedElement)) {
-            ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap();
+            ServiceMap serviceMap = ServiceIndex.getServiceMap(project);
             String serviceClass = serviceMap.getMap().get(parameter);
             if(serviceClass != null) {
                 return PhpIndex.getInstance(project).getAnyByFQN(serviceClass);
@@ -2,37 +2,40 @@ package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.config.dic.EventDispatcherSubscribedEvent;
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
-public class XmlEventParser extends AbstractServiceParser {
+public class XmlEventParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
     protected HashMap<String, String> list = new HashMap<String, String>();
     protected ArrayList<EventDispatcherSubscribedEvent> events = new ArrayList<EventDispatcherSubscribedEvent>();
 
+    /**
+     * /container/services/service[@id]/tag[@event]
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/services/service[@id]/tag[@event]";
-    }
-
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+    public void startElement(ServiceXmlElement element) {
 
-        if(nodeList == null) {
+        if(!element.hasAttribute("event") || !element.isPath("container", "services", "service", "tag")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            this.list.put(node.getAttribute("event"), node.getAttribute("name"));
-            if(((Element) node.getParentNode()).hasAttribute("class")) {
-                this.events.add(new EventDispatcherSubscribedEvent(node.getAttribute("event"), ((Element) node.getParentNode()).getAttribute("class")).setType(node.getAttribute("name")));
-            }
+        ServiceXmlElement serviceElement = element.getParent();
+        if(serviceElement == null || !serviceElement.hasAttribute("id")) {
+            return;
+        }
 
+        String tagName = element.hasAttribute("name") ? element.getAttribute("name") : "";
+        this.list.put(element.getAttribute("event"), tagName);
+        if(serviceElement.hasAttribute("class")) {
+            this.events.add(new EventDispatcherSubscribedEvent(element.getAttribute("event"), serviceElement.getAttribute("class")).setType(tagName));
         }
 
     }
@@ -57,4 +60,34 @@ public class XmlEventParser extends AbstractServiceParser {
         return subscribedEvents;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.list);
+
+        output.writeInt(this.events.size());
+        for(EventDispatcherSubscribedEvent event: this.events) {
+            ServiceXmlSnapshotStorage.writeString(output, event.getStringValue());
+            ServiceXmlSnapshotStorage.writeString(output, event.getFqnClassName());
+            ServiceXmlSnapshotStorage.writeNullableString(output, event.getSignature());
+            ServiceXmlSnapshotStorage.writeString(output, event.getType());
+        }
+
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+
+        ServiceXmlSnapshotStorage.readStringMap(input, this.list);
+
+        int events = input.readInt();
+        for (int i = 0; i < events; i++) {
+            String stringValue = ServiceXmlSnapshotStorage.readString(input);
+            String fqnClassName = ServiceXmlSnapshotStorage.readString(input);
+            String signature = ServiceXmlSnapshotStorage.readNullableString(input);
+            this.events.add(new EventDispatcherSubscribedEvent(stringValue, fqnClassName, signature).setType(ServiceXmlSnapshotStorage.readString(input)));
+        }
+
+    }
+
+}
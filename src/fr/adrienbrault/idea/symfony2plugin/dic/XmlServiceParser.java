@@ -1,30 +1,66 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.xml.sax.SAXException;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
-public class XmlServiceParser extends AbstractServiceParser {
+public class XmlServiceParser extends AbstractServiceParser implements ServiceSnapshotInterface {
+
+    /**
+     * working maps only alive while a document is parsed; afterwards the compact ServiceMap holds the data
+     */
+    protected Map<String, String> map;
+    protected Map<String, String> publicMap;
 
     protected ServiceMap serviceMap = new ServiceMap();
 
     @Override
-    public String getXPathFilter() {
-        return "";
-    }
-
-    public void parser(File file) {
-        try {
-            // @TODO: make this one beautiful
-            ServiceMap serviceMap1 = new ServiceMapParser().parse(file);
-            this.serviceMap.getMap().putAll(serviceMap1.getMap());
-            this.serviceMap.getPublicMap().putAll(serviceMap1.getPublicMap());
-        } catch (SAXException ignored) {
-        } catch (IOException ignored) {
-        } catch (ParserConfigurationException ignored) {
+    public void startElement(ServiceXmlElement element) {
+
+        if(!element.getName().equals("service")) {
+            return;
+        }
+
+        this.initWorkingMaps();
+
+        String id = getAttribute(element, "id");
+        if (element.hasAttribute("class") && element.hasAttribute("id")) {
+            map.put(id, "\\" + element.getAttribute("class"));
+        }
+        if (!element.isAttribute("public", "false")) {
+            publicMap.put(id, "\\" + getAttribute(element, "class"));
+        }
+        if (element.hasAttribute("alias") && publicMap.get(element.getAttribute("alias")) != null) {
+            map.put(id, map.get(element.getAttribute("alias")));
+            publicMap.put(id, map.get(element.getAttribute("alias")));
+        }
+
+    }
+
+    @Override
+    public void endDocument() {
+        this.initWorkingMaps();
+
+        // Support services whose class isn't specified
+        populateMapWithDefaultServices(this.map);
+        populateMapWithDefaultServices(this.publicMap);
+
+        this.serviceMap = new ServiceMap(this.map, this.publicMap);
+        this.map = null;
+        this.publicMap = null;
+    }
+
+    private void initWorkingMaps() {
+        if(this.map == null) {
+            this.map = new HashMap<String, String>(this.serviceMap.getMap());
+            this.publicMap = new HashMap<String, String>(this.serviceMap.getPublicMap());
         }
     }
 
@@ -32,4 +68,32 @@ public class XmlServiceParser extends AbstractServiceParser {
         return serviceMap;
     }
 
-}
\ No newline at end of file
+    private static String getAttribute(ServiceXmlElement element, String attributeName) {
+        return element.hasAttribute(attributeName) ? element.getAttribute(attributeName) : "";
+    }
+
+    private static void populateMapWithDefaultServices(Map<String, String> map) {
+        map.put("request", "\\Symfony\\Component\\HttpFoundation\\Request");
+        map.put("service_container", "\\Symfony\\Component\\DependencyInjection\\ContainerInterface");
+        map.put("kernel", "\\Symfony\\Component\\HttpKernel\\KernelInterface");
+        map.put("controller_resolver", "\\Symfony\\Component\\HttpKernel\\Controller\\ControllerResolverInterface");
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.serviceMap.getMap());
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.serviceMap.getPublicMap());
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        Map<String, String> map = new HashMap<String, String>();
+        Map<String, String> publicMap = new HashMap<String, String>();
+
+        ServiceXmlSnapshotStorage.readStringMap(input, map);
+        ServiceXmlSnapshotStorage.readStringMap(input, publicMap);
+
+        this.serviceMap = new ServiceMap(map, publicMap);
+    }
+
+}
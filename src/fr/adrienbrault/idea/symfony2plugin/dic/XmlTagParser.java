@@ -1,41 +1,43 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
-public class XmlTagParser extends AbstractServiceParser {
+public class XmlTagParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
     protected HashSet<String> list = new HashSet<String>();
     protected HashMap<String, ArrayList<String>> taggedClasses = new HashMap<String, ArrayList<String>>();
 
+    /**
+     * /container/services/service[@id]/tag[@name]
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/services/service[@id]/tag[@name]";
-    }
+    public void startElement(ServiceXmlElement element) {
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+        if(!element.hasAttribute("name") || !element.isPath("container", "services", "service", "tag")) {
+            return;
+        }
 
-        if(nodeList == null) {
+        ServiceXmlElement serviceElement = element.getParent();
+        if(serviceElement == null || !serviceElement.hasAttribute("id")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String tagName = node.getAttribute("name");
-            this.list.add(tagName);
-            Element parentNode = (Element) node.getParentNode();
-            if(parentNode.hasAttribute("class")) {
-                this.addTaggedClass(tagName, parentNode.getAttribute("class"));
-            }
+        String tagName = element.getAttribute("name");
+        this.list.add(tagName);
+        if(serviceElement.hasAttribute("class")) {
+            this.addTaggedClass(tagName, serviceElement.getAttribute("class"));
         }
 
     }
@@ -66,4 +68,42 @@ public class XmlTagParser extends AbstractServiceParser {
         return list;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+
+        output.writeInt(this.list.size());
+        for(String tagName: this.list) {
+            ServiceXmlSnapshotStorage.writeString(output, tagName);
+        }
+
+        output.writeInt(this.taggedClasses.size());
+        for(Map.Entry<String, ArrayList<String>> entry: this.taggedClasses.entrySet()) {
+            ServiceXmlSnapshotStorage.writeString(output, entry.getKey());
+            output.writeInt(entry.getValue().size());
+            for(String className: entry.getValue()) {
+                ServiceXmlSnapshotStorage.writeString(output, className);
+            }
+        }
+
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+
+        int tags = input.readInt();
+        for (int i = 0; i < tags; i++) {
+            this.list.add(ServiceXmlSnapshotStorage.readString(input));
+        }
+
+        int taggedClasses = input.readInt();
+        for (int i = 0; i < taggedClasses; i++) {
+            String tagName = ServiceXmlSnapshotStorage.readString(input);
+            int classes = input.readInt();
+            for (int j = 0; j < classes; j++) {
+                this.addTaggedClass(tagName, ServiceXmlSnapshotStorage.readString(input));
+            }
+        }
+
+    }
+
+}
@@ -45,7 +45,7 @@ public class EntityHelper {
             }
         }
 
-        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(PhpIndex.getInstance(project)).getContainingBundle(phpClass);
+        SymfonyBundle symfonyBundle = new SymfonyBundleUtil(project).getContainingBundle(phpClass);
         if(symfonyBundle != null) {
             String classFqnName = phpClass.getPresentableFQN();
 
@@ -1,39 +1,58 @@
 package fr.adrienbrault.idea.symfony2plugin.doctrine.component;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-public class EntityNamesServiceParser extends AbstractServiceParser {
+public class EntityNamesServiceParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
 
     protected Map<String, String> entityNameMap = new HashMap<String, String>();
 
+    /**
+     * /container/services/service[@id[starts-with(.,'doctrine.orm.')]]//call[@method='setEntityNamespaces']//argument[@key]
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/services/service[@id[starts-with(.,'doctrine.orm.')]]//call[@method='setEntityNamespaces']//argument[@key]";
-    }
+    public void endElement(ServiceXmlElement element) {
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+        if(!element.hasAttribute("key") || !element.getName().equals("argument")) {
+            return;
+        }
 
-        if(nodeList == null) {
+        ServiceXmlElement callElement = element.getAncestor("call");
+        if(callElement == null || !callElement.isAttribute("method", "setEntityNamespaces")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            this.entityNameMap.put(node.getAttribute("key"), "\\" + node.getTextContent());
+        ServiceXmlElement serviceElement = callElement.getAncestorOnPath("container", "services", "service");
+
+        if(serviceElement == null || !serviceElement.hasAttribute("id") || !serviceElement.getAttribute("id").startsWith("doctrine.orm.")) {
+            return;
         }
 
+        this.entityNameMap.put(element.getAttribute("key"), "\\" + element.getText());
+
     }
 
     public Map<String, String> getEntityNameMap() {
         return entityNameMap;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.entityNameMap);
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        ServiceXmlSnapshotStorage.readStringMap(input, this.entityNameMap);
+    }
+
+}
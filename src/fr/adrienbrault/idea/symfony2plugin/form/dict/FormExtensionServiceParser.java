@@ -1,37 +1,50 @@
 package fr.adrienbrault.idea.symfony2plugin.form.dict;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 
-public class FormExtensionServiceParser extends AbstractServiceParser {
+public class FormExtensionServiceParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
     protected HashMap<String, String> formExtensions = new HashMap<String, String>();
 
+    /**
+     * /container/services/service/tag[@name='form.type_extension']
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/services/service/tag[@name='form.type_extension']";
-    }
-
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+    public void startElement(ServiceXmlElement element) {
 
-        if(nodeList == null) {
+        if(!element.isAttribute("name", "form.type_extension") || !element.isPath("container", "services", "service", "tag")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            formExtensions.put(node.getParentNode().getAttributes().getNamedItem("class").getTextContent(), node.getAttribute("alias"));
+        ServiceXmlElement serviceElement = element.getParent();
+        if(serviceElement == null || !serviceElement.hasAttribute("class")) {
+            return;
         }
 
+        formExtensions.put(serviceElement.getAttribute("class"), element.hasAttribute("alias") ? element.getAttribute("alias") : "");
+
     }
 
     public HashMap<String, String> getFormExtensions() {
         return this.formExtensions;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.formExtensions);
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        ServiceXmlSnapshotStorage.readStringMap(input, this.formExtensions);
+    }
+
+}
@@ -1,38 +1,83 @@
 package fr.adrienbrault.idea.symfony2plugin.form.dict;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.Map;
 
-public class FormTypeServiceParser extends AbstractServiceParser {
+public class FormTypeServiceParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
     protected FormTypeMap formTypeMap = new FormTypeMap();
 
+    /**
+     * first collection argument per open element, to emulate xpath "argument[@type='collection'][1]"
+     */
+    private HashMap<ServiceXmlElement, ServiceXmlElement> firstCollections = new HashMap<ServiceXmlElement, ServiceXmlElement>();
+
+    /**
+     * /container/services/service[@id='form.registry']//service[@class]/argument[@type='collection'][1]/argument[@key]
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/services/service[@id='form.registry']//service[@class]/argument[@type='collection'][1]/argument[@key]";
+    public void startElement(ServiceXmlElement element) {
+
+        if(!element.getName().equals("argument") || !element.isAttribute("type", "collection")) {
+            return;
+        }
+
+        ServiceXmlElement serviceElement = element.getParent();
+        if(serviceElement != null && !this.firstCollections.containsKey(serviceElement)) {
+            this.firstCollections.put(serviceElement, element);
+        }
+
     }
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+    @Override
+    public void endElement(ServiceXmlElement element) {
+
+        // only elements of the current path are needed
+        this.firstCollections.remove(element);
+
+        if(!element.hasAttribute("key") || !element.getName().equals("argument")) {
+            return;
+        }
+
+        ServiceXmlElement collectionElement = element.getParent();
+        if(collectionElement == null || collectionElement.getParent() == null || this.firstCollections.get(collectionElement.getParent()) != collectionElement) {
+            return;
+        }
 
-        if(nodeList == null) {
+        ServiceXmlElement serviceElement = collectionElement.getParent();
+        if(serviceElement == null || !serviceElement.getName().equals("service") || !serviceElement.hasAttribute("class")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            this.formTypeMap.getMap().put(node.getTextContent(), node.getAttribute("key"));
+        ServiceXmlElement registryElement = serviceElement.getAncestorOnPath("container", "services", "service");
+
+        if(registryElement == null || !registryElement.isAttribute("id", "form.registry")) {
+            return;
         }
 
+        this.formTypeMap.getMap().put(element.getText(), element.getAttribute("key"));
+
     }
 
     public FormTypeMap getFormTypeMap() {
         return formTypeMap;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        ServiceXmlSnapshotStorage.writeStringMap(output, this.formTypeMap.getMap());
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        ServiceXmlSnapshotStorage.readStringMap(input, this.formTypeMap.getMap());
+    }
+
+}
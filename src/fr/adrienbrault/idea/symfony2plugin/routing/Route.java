@@ -1,5 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.routing;
 
+import org.jetbrains.annotations.Nullable;
+
 /**
  * @author Adrien Brault <adrien.brault@gmail.com>
  */
@@ -7,10 +9,16 @@ public class Route {
 
     private String name;
     private String controller;
+    private String path;
 
     public Route(String name, String controller) {
+        this(name, controller, null);
+    }
+
+    public Route(String name, String controller, @Nullable String path) {
         this.name = name;
         this.controller = controller;
+        this.path = path;
     }
 
     public String getName() {
@@ -20,4 +28,12 @@ public class Route {
     public String getController() {
         return controller;
     }
+
+    /**
+     * path pattern with placeholders, like "/en/{alias}/"; null if unknown
+     */
+    @Nullable
+    public String getPath() {
+        return path;
+    }
 }
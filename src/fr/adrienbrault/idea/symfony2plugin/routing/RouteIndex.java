@@ -0,0 +1,129 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup tables over all routes of the url generator: by name, by controller and by path prefix
+ */
+public class RouteIndex {
+
+    private static final Comparator<Route> PATH_COMPARATOR = new Comparator<Route>() {
+        @Override
+        public int compare(Route route, Route route2) {
+            return route.getPath().compareTo(route2.getPath());
+        }
+    };
+
+    private final Map<String, Route> routes;
+    private final Map<String, List<Route>> controllerRoutes;
+
+    /**
+     * routes with a known path, sorted by path
+     */
+    private final Route[] pathRoutes;
+
+    public RouteIndex() {
+        this(Collections.<String, Route>emptyMap());
+    }
+
+    public RouteIndex(Map<String, Route> routes) {
+        this.routes = Collections.unmodifiableMap(routes);
+
+        this.controllerRoutes = new HashMap<String, List<Route>>();
+        List<Route> pathRoutes = new ArrayList<Route>();
+
+        for(Route route: routes.values()) {
+            String controller = normalizeController(route.getController());
+            List<Route> controllerRoutes = this.controllerRoutes.get(controller);
+            if(controllerRoutes == null) {
+                controllerRoutes = new ArrayList<Route>(1);
+                this.controllerRoutes.put(controller, controllerRoutes);
+            }
+            controllerRoutes.add(route);
+
+            if(route.getPath() != null) {
+                pathRoutes.add(route);
+            }
+        }
+
+        this.pathRoutes = pathRoutes.toArray(new Route[pathRoutes.size()]);
+        Arrays.sort(this.pathRoutes, PATH_COMPARATOR);
+    }
+
+    public static RouteIndex create(CharSequence urlGenerator) {
+        return new RouteIndex(UrlGeneratorParser.parse(urlGenerator));
+    }
+
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    @Nullable
+    public Route getRoute(String routeName) {
+        return routes.get(routeName);
+    }
+
+    /**
+     * @param controller "FooBundle\Controller\BarController::fooAction" or "foo_service:fooAction"; case and a leading backslash do not matter
+     */
+    public Collection<Route> getRoutesByController(String controller) {
+        List<Route> routes = this.controllerRoutes.get(normalizeController(controller));
+        return routes == null ? Collections.<Route>emptyList() : Collections.unmodifiableList(routes);
+    }
+
+    public Collection<Route> getRoutesByClassMethod(String className, String methodName) {
+        return getRoutesByController(className + "::" + methodName);
+    }
+
+    public Collection<Route> getRoutesByServiceMethod(String serviceId, String methodName) {
+        return getRoutesByController(serviceId + ":" + methodName);
+    }
+
+    /**
+     * php class and method names and service ids are case insensitive, so are the controller keys
+     */
+    public static String normalizeController(String controller) {
+
+        controller = controller.trim();
+        if(controller.startsWith("\\")) {
+            controller = controller.substring(1);
+        }
+
+        return controller.toLowerCase();
+    }
+
+    /**
+     * routes with a path starting with given prefix, in path order
+     */
+    public List<Route> getRoutesByPathPrefix(String prefix) {
+
+        // first path >= prefix
+        int low = 0;
+        int high = this.pathRoutes.length;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(this.pathRoutes[mid].getPath().compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Route> routes = new ArrayList<Route>();
+        for(int i = low; i < this.pathRoutes.length && this.pathRoutes[i].getPath().startsWith(prefix); i++) {
+            routes.add(this.pathRoutes[i]);
+        }
+
+        return routes;
+    }
+
+}
@@ -0,0 +1,148 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.io.FileUtil;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the route index of the url generator file.
+ *
+ * A changed file is parsed on a pooled thread and swapped in as a whole;
+ * until then callers get the previous index, or an empty one, and never wait on the parse.
+ * As ModificationTracker it can be a dependency of cached values derived from the routes.
+ */
+public class RouteIndexFactory implements Disposable, ModificationTracker {
+
+    protected Project project;
+
+    protected volatile Snapshot snapshot = new Snapshot(new RouteIndex(), null, -1, -1);
+
+    protected AtomicBoolean building = new AtomicBoolean(false);
+
+    /**
+     * changed on every swapped snapshot
+     */
+    protected AtomicLong modificationCount = new AtomicLong();
+
+    protected volatile boolean disposed = false;
+
+    public RouteIndexFactory(Project project) {
+        this.project = project;
+    }
+
+    public RouteIndex getIndex() {
+
+        File urlGeneratorFile = this.project.getComponent(Symfony2ProjectComponent.class).getUrlGeneratorFile();
+        if(!urlGeneratorFile.exists()) {
+            return new RouteIndex();
+        }
+
+        if(this.snapshot.isModified(urlGeneratorFile)) {
+            this.scheduleBuild(urlGeneratorFile);
+        }
+
+        // build may have run synchronously
+        return this.snapshot.getRouteIndex();
+    }
+
+    protected void scheduleBuild(final File urlGeneratorFile) {
+
+        if(this.disposed || !this.building.compareAndSet(false, true)) {
+            return;
+        }
+
+        Runnable runnable = new Runnable() {
+            public void run() {
+                try {
+                    Snapshot snapshot = build(urlGeneratorFile);
+                    if(snapshot != null && !RouteIndexFactory.this.disposed) {
+                        RouteIndexFactory.this.setSnapshot(snapshot);
+                    }
+                } finally {
+                    RouteIndexFactory.this.building.set(false);
+                }
+            }
+        };
+
+        Application application = ApplicationManager.getApplication();
+        if(application.isUnitTestMode()) {
+            runnable.run();
+        } else {
+            application.executeOnPooledThread(runnable);
+        }
+
+    }
+
+    protected Snapshot build(File urlGeneratorFile) {
+
+        // stamp before reading, so a file changed while we are reading it gets parsed again
+        long length = urlGeneratorFile.length();
+        long lastModified = urlGeneratorFile.lastModified();
+
+        try {
+            return new Snapshot(RouteIndex.create(FileUtil.loadFile(urlGeneratorFile)), urlGeneratorFile.getAbsolutePath(), length, lastModified);
+        } catch (IOException ignored) {
+            return null;
+        }
+
+    }
+
+    protected void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.modificationCount.incrementAndGet();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        this.disposed = true;
+        this.setSnapshot(new Snapshot(new RouteIndex(), null, -1, -1));
+    }
+
+    public static RouteIndexFactory getInstance(Project project) {
+        return ServiceManager.getService(project, RouteIndexFactory.class);
+    }
+
+    public static RouteIndex getRouteIndex(Project project) {
+        return getInstance(project).getIndex();
+    }
+
+    protected static class Snapshot {
+
+        private final RouteIndex routeIndex;
+        private final String path;
+        private final long length;
+        private final long lastModified;
+
+        public Snapshot(RouteIndex routeIndex, String path, long length, long lastModified) {
+            this.routeIndex = routeIndex;
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        public RouteIndex getRouteIndex() {
+            return routeIndex;
+        }
+
+        public boolean isModified(File file) {
+            return !file.getAbsolutePath().equals(this.path) || file.length() != this.length || file.lastModified() != this.lastModified;
+        }
+
+    }
+
+}
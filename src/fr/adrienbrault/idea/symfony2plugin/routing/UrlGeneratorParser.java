@@ -0,0 +1,164 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import fr.adrienbrault.idea.symfony2plugin.util.PhpArrayReader;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the "$declaredRoutes" array of a generated url generator (appDevUrlGenerator.php).
+ *
+ * Single pass tokenizer over the php array literal, no backtracking; every char is visited once.
+ * Route arrays are: 0 => variables, 1 => defaults, 2 => requirements, 3 => path tokens, 4 => host tokens;
+ * only defaults and path tokens are materialized, everything else is skipped.
+ */
+public class UrlGeneratorParser extends PhpArrayReader {
+
+    private static final Pattern ASSETIC_ROUTE = Pattern.compile("_assetic_[0-9a-z]+[_\\d+]*");
+    private static final Pattern I18N_ROUTE = Pattern.compile("^[a-z]{2}+__RG__");
+
+    protected UrlGeneratorParser(CharSequence content) {
+        super(content);
+    }
+
+    public static Map<String, Route> parse(CharSequence content) {
+
+        Map<String, Route> routes = new HashMap<String, Route>();
+
+        UrlGeneratorParser parser = new UrlGeneratorParser(content);
+        if(!parser.seekDeclaredRoutes()) {
+            return routes;
+        }
+
+        char close = parser.readArrayOpen();
+        if(close == 0) {
+            return routes;
+        }
+
+        while(!parser.readArrayClose(close)) {
+
+            Object routeName = parser.readValue(false);
+            if(!parser.readArrow()) {
+                break;
+            }
+
+            Route route = parser.readRoute(String.valueOf(routeName));
+            if(route != null) {
+                routes.put(route.getName(), route);
+            }
+
+            if(!parser.readSeparator(close)) {
+                break;
+            }
+        }
+
+        return routes;
+    }
+
+    @Nullable
+    protected Route readRoute(String routeName) {
+
+        // dont add _assetic_04d92f8, _assetic_04d92f8_0
+        if(ASSETIC_ROUTE.matcher(routeName).matches()) {
+            this.readValue(true);
+            return null;
+        }
+
+        char close = this.readArrayOpen();
+        if(close == 0) {
+            this.readValue(true);
+            return null;
+        }
+
+        Object defaults = null;
+        Object tokens = null;
+
+        int index = 0;
+        while(!this.readArrayClose(close)) {
+
+            Object key = this.readValue(false);
+            if(this.readArrow()) {
+                String keyName = String.valueOf(key);
+                if("1".equals(keyName)) {
+                    defaults = this.readValue(false);
+                } else if("3".equals(keyName)) {
+                    tokens = this.readValue(false);
+                } else {
+                    this.readValue(true);
+                }
+            } else if(index == 1) {
+                defaults = key;
+            } else if(index == 3) {
+                tokens = key;
+            }
+
+            index++;
+            if(!this.readSeparator(close)) {
+                break;
+            }
+        }
+
+        if(!(defaults instanceof Map) || !(((Map) defaults).get("_controller") instanceof String)) {
+            return null;
+        }
+
+        // support I18nRoutingBundle
+        if(routeName.contains("__RG__")) {
+            routeName = I18N_ROUTE.matcher(routeName).replaceFirst("");
+        }
+
+        return new Route(routeName, (String) ((Map) defaults).get("_controller"), getPath(tokens));
+    }
+
+    /**
+     * tokens are stored in reverse order: [[text, "/"], [variable, "/", requirement, name], [text, "/en"]] is "/en/{name}/"
+     */
+    @Nullable
+    protected static String getPath(Object tokens) {
+
+        if(!(tokens instanceof Map)) {
+            return null;
+        }
+
+        StringBuilder path = new StringBuilder();
+        for(Object token: ((Map) tokens).values()) {
+            if(!(token instanceof Map)) {
+                return null;
+            }
+
+            Map tokenMap = (Map) token;
+            Object prefix = tokenMap.get("1");
+            if(!(prefix instanceof String)) {
+                return null;
+            }
+
+            if("variable".equals(tokenMap.get("0"))) {
+                path.insert(0, prefix + "{" + tokenMap.get("3") + "}");
+            } else {
+                path.insert(0, (String) prefix);
+            }
+        }
+
+        return path.toString();
+    }
+
+    protected boolean seekDeclaredRoutes() {
+
+        String name = "$declaredRoutes";
+        for(int i = 0; i + name.length() <= this.content.length; i++) {
+            if(this.content[i] == '$' && this.startsWith(i, name)) {
+                this.pos = i + name.length();
+                this.skipWhitespace();
+                if(this.pos < this.content.length && this.content[this.pos] == '=') {
+                    this.pos++;
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -7,6 +7,7 @@ import com.intellij.psi.*;
 import com.jetbrains.php.lang.psi.elements.StringLiteralExpression;
 import com.jetbrains.twig.TwigFile;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -30,7 +31,7 @@ public class TemplateReference extends PsiPolyVariantReferenceBase<PsiElement> {
     public Object[] getVariants() {
         List<LookupElement> results = new ArrayList<LookupElement>();
 
-        Map<String, PsiFile> PsiFileMap = TwigHelper.getTemplateFilesByName(getElement().getProject());
+        Map<String, PsiFile> PsiFileMap = TwigHelper.getTemplateFilesByPrefix(getElement().getProject(), PsiElementUtils.getTextBeforeCaret(this.templateName), true, true);
         for (Map.Entry<String, PsiFile> entry : PsiFileMap.entrySet()) {
             results.add(
                 new TemplateLookupElement(entry.getKey(), entry.getValue())
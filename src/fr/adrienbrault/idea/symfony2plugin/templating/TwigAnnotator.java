@@ -3,12 +3,12 @@ package fr.adrienbrault.idea.symfony2plugin.templating;
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.Annotator;
 import com.intellij.psi.PsiElement;
-import com.jetbrains.twig.TwigFile;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
-import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetDirectoryReader;
+import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetEnum;
 import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetFile;
+import fr.adrienbrault.idea.symfony2plugin.asset.dic.AssetIndex;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
 import org.jetbrains.annotations.NotNull;
 
@@ -63,9 +63,8 @@ public class TwigAnnotator implements Annotator {
             return;
         }
 
-        Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(element.getProject());
         String templateName = element.getText();
-        if(twigFilesByName.containsKey(templateName))  {
+        if(TwigHelper.getTwigFileByName(element.getProject(), templateName) != null)  {
             return;
         }
 
@@ -86,10 +85,10 @@ public class TwigAnnotator implements Annotator {
             return;
         }
 
-        for (final AssetFile assetFile : new AssetDirectoryReader().setProject(element.getProject()).getAssetFiles()) {
-            if(assetFile.toString().equals(element.getText())) {
-                return;
-            }
+        // only web directory files are valid here
+        AssetFile assetFile = AssetIndex.getInstance(element.getProject()).getAssetFile(element.getText());
+        if(assetFile != null && assetFile.getAssetPosition() == AssetEnum.Position.Web) {
+            return;
         }
 
         holder.createWarningAnnotation(element, "Missing asset");
@@ -5,6 +5,7 @@ import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.patterns.PsiElementPattern;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiWhiteSpace;
 import com.intellij.util.ProcessingContext;
 import com.jetbrains.twig.TwigFile;
@@ -31,6 +32,8 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -65,7 +68,7 @@ public class TwigTemplateCompletionContributor extends CompletionContributor {
                     PsiElement psiElement = parameters.getPosition();
                     String domainName =  TwigUtil.getPsiElementTranslationDomain(psiElement);
 
-                    ArrayList<String> domainMap = map.getDomainMap(domainName);
+                    Collection<String> domainMap = map.getDomainMap(domainName);
                     if(domainMap == null) {
                         return;
                     }
@@ -126,8 +129,7 @@ public class TwigTemplateCompletionContributor extends CompletionContributor {
                         return;
                     }
 
-                    Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(parameters.getPosition().getProject());
-                    ArrayList<TwigBlock> blocks = new TwigBlockParser(twigFilesByName).walk(parameters.getPosition().getContainingFile());
+                    List<TwigBlock> blocks = new TwigBlockParser().walk(parameters.getPosition().getContainingFile());
                     ArrayList<String> uniqueList = new ArrayList<String>();
                     for (TwigBlock block : blocks) {
                         if(!uniqueList.contains(block.getName())) {
@@ -163,12 +165,12 @@ public class TwigTemplateCompletionContributor extends CompletionContributor {
 
                     String templateName = psiElement.getText();
 
-                    Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(parameters.getPosition().getProject());
-                    if(!twigFilesByName.containsKey(templateName)) {
+                    TwigFile twigFile = TwigHelper.getTwigFileByName(parameters.getPosition().getProject(), templateName);
+                    if(twigFile == null) {
                         return;
                     }
 
-                    for (Map.Entry<String, String> entry: new TwigMarcoParser().getMacros(twigFilesByName.get(templateName)).entrySet()) {
+                    for (Map.Entry<String, String> entry: new TwigMarcoParser().getMacros(twigFile).entrySet()) {
                         resultSet.addElement(LookupElementBuilder.create(entry.getKey()).withTypeText(entry.getValue(), true).withIcon(PhpIcons.TwigFileIcon));
                     }
 
@@ -339,8 +341,8 @@ public class TwigTemplateCompletionContributor extends CompletionContributor {
                 return;
             }
 
-            Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(parameters.getPosition().getProject());
-            for (Map.Entry<String, TwigFile> entry : twigFilesByName.entrySet()) {
+            Map<String, PsiFile> twigFilesByName = TwigHelper.getTemplateFilesByPrefix(parameters.getPosition().getProject(), PsiElementUtils.getTextBeforeCaret(parameters.getPosition().getText()), true, false);
+            for (Map.Entry<String, PsiFile> entry : twigFilesByName.entrySet()) {
                 resultSet.addElement(
                     new TemplateLookupElement(entry.getKey(), entry.getValue())
                 );
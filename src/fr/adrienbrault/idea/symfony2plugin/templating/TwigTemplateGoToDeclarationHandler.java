@@ -21,7 +21,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Map;
+import java.util.List;
 
 /**
  * @author Adrien Brault <adrien.brault@gmail.com>
@@ -89,8 +89,7 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
     }
 
     private PsiElement[] getTwigFiles(PsiElement psiElement) {
-        Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(psiElement.getProject());
-        TwigFile twigFile = twigFilesByName.get(psiElement.getText());
+        TwigFile twigFile = TwigHelper.getTwigFileByName(psiElement.getProject(), psiElement.getText());
 
         if (null == twigFile) {
             return null;
@@ -100,8 +99,7 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
     }
 
     private PsiElement[] getBlockGoTo(PsiElement psiElement) {
-        Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(psiElement.getProject());
-        ArrayList<TwigBlock> blocks = new TwigBlockParser(twigFilesByName).walk(psiElement.getContainingFile());
+        List<TwigBlock> blocks = new TwigBlockParser().walk(psiElement.getContainingFile());
 
         ArrayList<PsiElement> psiElements = new ArrayList<PsiElement>();
         for (TwigBlock block : blocks) {
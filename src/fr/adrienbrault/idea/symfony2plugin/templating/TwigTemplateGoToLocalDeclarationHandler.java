@@ -72,7 +72,7 @@ public class TwigTemplateGoToLocalDeclarationHandler implements GotoDeclarationH
     }
 
     private PsiElement[] getFunctions(PsiElement psiElement) {
-        HashMap<String, TwigExtension> functions = new TwigExtensionParser(psiElement.getProject()).getFunctions();
+        Map<String, TwigExtension> functions = new TwigExtensionParser(psiElement.getProject()).getFunctions();
 
         String funcName = psiElement.getText();
         if(!functions.containsKey(funcName)) {
@@ -100,7 +100,7 @@ public class TwigTemplateGoToLocalDeclarationHandler implements GotoDeclarationH
         String funcName = psiElement.getText();
         String funcNameSearch = funcName;
 
-        ArrayList<TwigMacro> twigMacros;
+        List<TwigMacro> twigMacros;
 
         if(psiElement.getPrevSibling() != null && PlatformPatterns.psiElement(TwigTokenTypes.DOT).accepts(psiElement.getPrevSibling())) {
             PsiElement psiElement1 = psiElement.getPrevSibling().getPrevSibling();
@@ -117,11 +117,8 @@ public class TwigTemplateGoToLocalDeclarationHandler implements GotoDeclarationH
         for(TwigMacro twigMacro : twigMacros) {
             if(twigMacro.getName().equals(funcNameSearch)) {
 
-                Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(psiElement.getProject());
-
-                if(twigFilesByName.containsKey(twigMacro.getTemplate())) {
-                    TwigFile twigFile = twigFilesByName.get(twigMacro.getTemplate());
-
+                TwigFile twigFile = TwigHelper.getTwigFileByName(psiElement.getProject(), twigMacro.getTemplate());
+                if(twigFile != null) {
                     return PsiTreeUtil.collectElements(twigFile, new RegexPsiElementFilter(
                         TwigHelper.getDeprecatedMacroTag(),
                         "\\{%\\s?macro\\s?" + Pattern.quote(funcName) + "\\s?\\(.*%}")
@@ -8,6 +8,7 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.config.annotation.AnnotationElementPatternHelper;
 import fr.adrienbrault.idea.symfony2plugin.templating.TemplateLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.completion.annotations.AnnotationQuoteInsertHandler;
 import org.jetbrains.annotations.NotNull;
 
@@ -31,7 +32,7 @@ public class AnnotationCompletionContributor extends CompletionContributor {
                             return;
                         }
 
-                        Map<String, PsiFile> twigFilesByName = TwigHelper.getTemplateFilesByName(parameters.getPosition().getProject());
+                        Map<String, PsiFile> twigFilesByName = TwigHelper.getTemplateFilesByPrefix(parameters.getPosition().getProject(), PsiElementUtils.getTextBeforeCaret(PsiElementUtils.trimQuote(parameters.getPosition().getText())), true, true);
                         for (Map.Entry<String, PsiFile> entry : twigFilesByName.entrySet()) {
                             resultSet.addElement(
                                 new TemplateLookupElement(entry.getKey(), entry.getValue(), parameters.getPosition() , AnnotationQuoteInsertHandler.getInstance())
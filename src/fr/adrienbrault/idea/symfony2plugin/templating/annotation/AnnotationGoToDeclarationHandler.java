@@ -8,7 +8,6 @@ import com.intellij.patterns.PlatformPatterns;
 import com.intellij.patterns.StandardPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiTreeUtil;
-import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.documentation.phpdoc.parser.PhpDocElementTypes;
 import com.jetbrains.php.lang.documentation.phpdoc.psi.PhpDocComment;
@@ -122,8 +121,7 @@ public class AnnotationGoToDeclarationHandler implements GotoDeclarationHandler
 
     @Nullable
     protected SymfonyBundle getContainingBundle(PhpClass phpClassSearch) {
-        PhpIndex phpIndex = PhpIndex.getInstance(phpClassSearch.getProject());
-        return new SymfonyBundleUtil(phpIndex).getContainingBundle(phpClassSearch);
+        return new SymfonyBundleUtil(phpClassSearch.getProject()).getContainingBundle(phpClassSearch);
     }
 
     @Nullable
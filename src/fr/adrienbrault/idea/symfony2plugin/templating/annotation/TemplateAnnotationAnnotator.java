@@ -12,7 +12,6 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
-import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.documentation.phpdoc.psi.PhpDocComment;
 import com.jetbrains.php.lang.documentation.phpdoc.psi.tags.PhpDocTag;
 import com.jetbrains.php.lang.psi.elements.Method;
@@ -124,7 +123,7 @@ public class TemplateAnnotationAnnotator implements Annotator {
                 @Override
                 public void run() {
 
-                    SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(PhpIndex.getInstance(project));
+                    SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(project);
 
                     final SymfonyBundle symfonyBundle = symfonyBundleUtil.getContainingBundle(file);
                     if(null == symfonyBundle) {
@@ -1,52 +1,128 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.dict;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.jetbrains.twig.TwigFile;
+import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateIndex;
 
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Blocks of all templates a file extends.
+ *
+ * Block names and parent templates of a file are read once per file change,
+ * the inherited block list is memoized on the file until one of the walked templates or the template index changes.
+ */
 public class TwigBlockParser {
 
-    private Map<String, TwigFile> twigFilesByName;
+    private static final Pattern BLOCK_PATTERN = Pattern.compile("\\{%[\\s+]*block[\\s+]*(.*?)[\\s+]*%}");
+    private static final Pattern EXTENDS_PATTERN = Pattern.compile("^[\\s+]*\\{%\\s+extends[\\s+]*['|\"](.*?)['|\"]");
 
-    public TwigBlockParser(Map<String, TwigFile> twigFilesByName) {
-        this.twigFilesByName = twigFilesByName;
-    }
+    private static final Key<CachedValue<FileBlocks>> FILE_BLOCKS = new Key<CachedValue<FileBlocks>>("SYMFONY2_TWIG_FILE_BLOCKS");
+    private static final Key<CachedValue<List<TwigBlock>>> INHERITED_BLOCKS = new Key<CachedValue<List<TwigBlock>>>("SYMFONY2_TWIG_INHERITED_BLOCKS");
+
+    /**
+     * limit recursive calls
+     */
+    private static final int MAX_DEPTH = 20;
+
+    /**
+     * @param file template or its completion copy; blocks are cached on the original file
+     */
+    public List<TwigBlock> walk(PsiFile file) {
+
+        final PsiFile originalFile = file.getOriginalFile();
+        return CachedValuesManager.getManager(originalFile.getProject()).getCachedValue(originalFile, INHERITED_BLOCKS, new CachedValueProvider<List<TwigBlock>>() {
+            @Override
+            public Result<List<TwigBlock>> compute() {
+                List<Object> dependencies = new ArrayList<Object>();
+                dependencies.add(TwigTemplateIndex.getInstance(originalFile.getProject()));
+
+                List<TwigBlock> blocks = new ArrayList<TwigBlock>();
+                walk(originalFile, "self", blocks, dependencies, 0);
+
+                return Result.create(Collections.unmodifiableList(blocks), dependencies.toArray());
+            }
+        }, false);
 
-    public ArrayList<TwigBlock> walk(PsiFile file) {
-        return this.walk(file, "self", new ArrayList<TwigBlock>(), 0);
     }
 
-    public ArrayList<TwigBlock> walk(PsiFile file, String shortcutName, ArrayList<TwigBlock> current, int depth) {
+    protected void walk(PsiFile file, String shortcutName, List<TwigBlock> current, List<Object> dependencies, int depth) {
 
-        // @TODO: we dont use psielements here, check if Pattern faster or not
+        dependencies.add(file);
+        FileBlocks fileBlocks = getFileBlocks(file);
 
         // dont match on self file !?
         if(depth > 0) {
-            Matcher matcherBlocks = Pattern.compile("\\{%[\\s+]*block[\\s+]*(.*?)[\\s+]*%}").matcher(file.getText());
-            while(matcherBlocks.find()){
-                current.add(new TwigBlock(matcherBlocks.group(1), shortcutName, file));
+            for(String blockName: fileBlocks.getBlockNames()) {
+                current.add(new TwigBlock(blockName, shortcutName, file));
             }
         }
 
-        // limit recursive calls
-        if(depth++ > 20) {
-            return current;
+        if(depth++ > MAX_DEPTH) {
+            return;
         }
 
-        // find extend in self
-        Matcher matcher = Pattern.compile("^[\\s+]*\\{%\\s+extends[\\s+]*['|\"](.*?)['|\"]").matcher(file.getText());
-        while(matcher.find()){
-            if(twigFilesByName.containsKey(matcher.group(1))) {
-                TwigFile twigFile = twigFilesByName.get(matcher.group(1));
-                this.walk(twigFile, matcher.group(1), current, depth);
+        for(String templateName: fileBlocks.getExtendsNames()) {
+            TwigFile twigFile = TwigHelper.getTwigFileByName(file.getProject(), templateName);
+            if(twigFile != null) {
+                this.walk(twigFile, templateName, current, dependencies, depth);
             }
         }
 
-        return current;
+    }
+
+    protected static FileBlocks getFileBlocks(final PsiFile file) {
+
+        return CachedValuesManager.getManager(file.getProject()).getCachedValue(file, FILE_BLOCKS, new CachedValueProvider<FileBlocks>() {
+            @Override
+            public Result<FileBlocks> compute() {
+                String text = file.getText();
+
+                List<String> blockNames = new ArrayList<String>();
+                Matcher matcherBlocks = BLOCK_PATTERN.matcher(text);
+                while(matcherBlocks.find()){
+                    blockNames.add(matcherBlocks.group(1));
+                }
+
+                List<String> extendsNames = new ArrayList<String>();
+                Matcher matcher = EXTENDS_PATTERN.matcher(text);
+                while(matcher.find()){
+                    extendsNames.add(matcher.group(1));
+                }
+
+                return Result.create(new FileBlocks(blockNames, extendsNames), file);
+            }
+        }, false);
+
+    }
+
+    protected static class FileBlocks {
+
+        private final List<String> blockNames;
+        private final List<String> extendsNames;
+
+        public FileBlocks(List<String> blockNames, List<String> extendsNames) {
+            this.blockNames = blockNames;
+            this.extendsNames = extendsNames;
+        }
+
+        public List<String> getBlockNames() {
+            return blockNames;
+        }
+
+        public List<String> getExtendsNames() {
+            return extendsNames;
+        }
+
     }
 
 }
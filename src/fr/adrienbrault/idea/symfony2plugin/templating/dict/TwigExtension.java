@@ -30,4 +30,20 @@ public class TwigExtension {
         return signature;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof TwigExtension)) {
+            return false;
+        }
+
+        TwigExtension twigExtension = (TwigExtension) o;
+        return this.twigExtensionType == twigExtension.twigExtensionType
+            && (this.signature == null ? twigExtension.signature == null : this.signature.equals(twigExtension.signature));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (this.twigExtensionType != null ? this.twigExtensionType.hashCode() : 0) + (this.signature != null ? this.signature.hashCode() : 0);
+    }
+
 }
@@ -1,22 +1,45 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.dict;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Macro declarations of a file; read once per file change
+ */
 public class TwigMarcoParser {
 
-    public HashMap<String, String> getMacros(PsiFile file) {
+    private static final Pattern MACRO_PATTERN = Pattern.compile("\\{%[\\s+]*macro[\\s+]*(.*?)[\\s+]*\\((.*?)\\)");
+
+    private static final Key<CachedValue<Map<String, String>>> MACROS = new Key<CachedValue<Map<String, String>>>("SYMFONY2_TWIG_MACROS");
+
+    /**
+     * @return unmodifiable macro name to signature map
+     */
+    public Map<String, String> getMacros(final PsiFile file) {
+
+        return CachedValuesManager.getManager(file.getProject()).getCachedValue(file, MACROS, new CachedValueProvider<Map<String, String>>() {
+            @Override
+            public Result<Map<String, String>> compute() {
+                HashMap<String, String> current = new HashMap<String, String>();
 
-        HashMap<String, String> current = new HashMap<String, String>();
+                Matcher matcherBlocks = MACRO_PATTERN.matcher(file.getText());
+                while(matcherBlocks.find()){
+                    current.put(matcherBlocks.group(1), matcherBlocks.group(2));
+                }
 
-        Matcher matcherBlocks = Pattern.compile("\\{%[\\s+]*macro[\\s+]*(.*?)[\\s+]*\\((.*?)\\)").matcher(file.getText());
-        while(matcherBlocks.find()){
-            current.put(matcherBlocks.group(1), matcherBlocks.group(2));
-        }
+                return Result.create(Collections.unmodifiableMap(current), file);
+            }
+        }, false);
 
-        return current;
     }
 
 }
@@ -8,6 +8,7 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.jetbrains.php.lang.PhpFileType;
 import com.jetbrains.twig.TwigFileType;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -39,9 +40,26 @@ public class TwigPathContentIterator implements ContentIterator {
             return true;
         }
 
+        String templateFinalName = getTemplateName(this.twigPath, virtualDirectoryFile, virtualFile);
+        if(templateFinalName == null) {
+            return true;
+        }
+
+        PsiFile psiFile = PsiManager.getInstance(this.project).findFile(virtualFile);
+        this.results.put(templateFinalName, psiFile);
+
+        return true;
+    }
+
+    /**
+     * Logical template name of a file inside the twig path directory: "FooBundle:Bar:index.html.twig", "@Foo/bar/index.html.twig"
+     */
+    @Nullable
+    public static String getTemplateName(TwigPath twigPath, VirtualFile virtualDirectoryFile, VirtualFile virtualFile) {
+
         String templatePath = VfsUtil.getRelativePath(virtualFile, virtualDirectoryFile, '/');
         if(templatePath == null) {
-            return true;
+            return null;
         }
 
         String templateDirectory = null; // xxx:XXX:xxx
@@ -56,10 +74,10 @@ public class TwigPathContentIterator implements ContentIterator {
             templateFile = templatePath;
         }
 
-        String namespace = this.twigPath.getNamespace().equals(TwigPathIndex.MAIN) ? "" : this.twigPath.getNamespace();
+        String namespace = twigPath.getNamespace().equals(TwigPathIndex.MAIN) ? "" : twigPath.getNamespace();
 
         String templateFinalName;
-        if(this.twigPath.getNamespaceType() == TwigPathIndex.NamespaceType.BUNDLE) {
+        if(twigPath.getNamespaceType() == TwigPathIndex.NamespaceType.BUNDLE) {
             templateFinalName = namespace + ":" + templateDirectory + ":" + templateFile;
         } else {
             templateFinalName = namespace + "/" + templateDirectory + "/" + templateFile;
@@ -73,11 +91,7 @@ public class TwigPathContentIterator implements ContentIterator {
             }
         }
 
-
-        PsiFile psiFile = PsiManager.getInstance(this.project).findFile(virtualFile);
-        this.results.put(templateFinalName, psiFile);
-
-        return true;
+        return templateFinalName;
     }
 
     private boolean isProcessable(VirtualFile virtualFile) {
@@ -1,38 +1,55 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.path;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 
-public class TwigPathServiceParser extends AbstractServiceParser {
+public class TwigPathServiceParser extends AbstractServiceParser implements ServiceSnapshotInterface {
 
     protected TwigPathIndex twigPathIndex = new TwigPathIndex();
 
-    @Override
-    public String getXPathFilter() {
-        return "/container/services/service[@id='twig.loader']//call[@method='addPath']";
-    }
+    private ArrayList<String> arguments;
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+    /**
+     * /container/services/service[@id='twig.loader']//call[@method='addPath']
+     */
+    @Override
+    public void startElement(ServiceXmlElement element) {
 
-        if(nodeList == null) {
+        if(!element.getName().equals("call") || !element.isAttribute("method", "addPath")) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
+        ServiceXmlElement serviceElement = element.getAncestorOnPath("container", "services", "service");
 
-            NodeList arguments = node.getElementsByTagName("argument");
+        if(serviceElement != null && serviceElement.isAttribute("id", "twig.loader")) {
+            this.arguments = new ArrayList<String>();
+        }
 
-            if(arguments.getLength() == 1) {
-                this.twigPathIndex.addPath(new TwigPath(arguments.item(0).getTextContent()));
-            } else if(arguments.getLength() == 2) {
-                this.twigPathIndex.addPath(new TwigPath(arguments.item(0).getTextContent(), arguments.item(1).getTextContent()));
-            }
+    }
+
+    @Override
+    public void endElement(ServiceXmlElement element) {
+
+        if(this.arguments == null) {
+            return;
+        }
 
+        if(element.getName().equals("argument")) {
+            this.arguments.add(element.getText());
+        } else if(element.getName().equals("call")) {
+            if(this.arguments.size() == 1) {
+                this.twigPathIndex.addPath(new TwigPath(this.arguments.get(0)));
+            } else if(this.arguments.size() == 2) {
+                this.twigPathIndex.addPath(new TwigPath(this.arguments.get(0), this.arguments.get(1)));
+            }
+            this.arguments = null;
         }
 
     }
@@ -41,4 +58,22 @@ public class TwigPathServiceParser extends AbstractServiceParser {
         return twigPathIndex;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        output.writeInt(this.twigPathIndex.getTwigPaths().size());
+        for(TwigPath twigPath: this.twigPathIndex.getTwigPaths()) {
+            ServiceXmlSnapshotStorage.writeString(output, twigPath.getPath());
+            ServiceXmlSnapshotStorage.writeString(output, twigPath.getNamespace());
+        }
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            String path = ServiceXmlSnapshotStorage.readString(input);
+            this.twigPathIndex.addPath(new TwigPath(path, ServiceXmlSnapshotStorage.readString(input)));
+        }
+    }
+
+}
@@ -0,0 +1,475 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.path;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ContentIterator;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.twig.TwigFileType;
+import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.StringPrefixIndex;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logical template name to file for all enabled twig paths of a project.
+ *
+ * Build on a pooled thread and kept up to date with vfs events: templates created, deleted, moved or renamed
+ * inside a twig path are added to or removed from the current snapshot one by one.
+ * Only changes of the twig path directories themselves, of bundle classes or of the twig path config
+ * build it again; until the new snapshot is swapped in callers get the previous one.
+ * Snapshots are immutable and swapped as a whole, so lookups need no lock.
+ * As ModificationTracker it can be a dependency of cached values which resolve templates.
+ */
+public class TwigTemplateIndex implements Disposable, ModificationTracker {
+
+    private static final Snapshot EMPTY_SNAPSHOT = new Snapshot(-1, Collections.<TwigPath>emptyList(), Collections.<VirtualFile>emptyList(), Collections.<String, VirtualFile>emptyMap(), Collections.<String>emptySet());
+
+    protected Project project;
+
+    @Nullable
+    protected volatile Snapshot snapshot;
+
+    /**
+     * snapshot misses changes which can not be applied one by one; rebuild on next access
+     */
+    protected volatile boolean outdated = true;
+
+    protected AtomicBoolean building = new AtomicBoolean(false);
+
+    protected volatile boolean disposed = false;
+
+    /**
+     * changed whenever template names may have changed; for cached values depending on template resolving
+     */
+    protected AtomicLong modificationCount = new AtomicLong();
+
+    public TwigTemplateIndex(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(List<? extends VFileEvent> events) {
+                for(VFileEvent event: events) {
+                    if(event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || isRenameEvent(event)) {
+                        TwigTemplateIndex.this.fileRemoved(event.getFile());
+                    }
+                }
+            }
+
+            @Override
+            public void after(List<? extends VFileEvent> events) {
+                for(VFileEvent event: events) {
+                    if(event instanceof VFileCreateEvent || event instanceof VFileMoveEvent || isRenameEvent(event)) {
+                        TwigTemplateIndex.this.fileAdded(event.getFile());
+                    } else if(event instanceof VFileCopyEvent) {
+                        VFileCopyEvent copyEvent = (VFileCopyEvent) event;
+                        TwigTemplateIndex.this.fileAdded(copyEvent.getNewParent().findChild(copyEvent.getNewChildName()));
+                    }
+                }
+            }
+        });
+    }
+
+    private static boolean isRenameEvent(VFileEvent event) {
+        return event instanceof VFilePropertyChangeEvent && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName());
+    }
+
+    /**
+     * @return unmodifiable template name to file map; twig and php templates
+     */
+    public Map<String, VirtualFile> getTemplateFiles() {
+        return this.getSnapshot().getTemplateFiles();
+    }
+
+    @Nullable
+    public VirtualFile getTemplateFile(String templateName) {
+        return this.getSnapshot().getTemplateFiles().get(templateName);
+    }
+
+    /**
+     * @return template names starting with prefix, ignoring case
+     */
+    public List<String> getTemplateNames(String prefix) {
+        return this.getSnapshot().getPrefixIndex().getByPrefix(prefix);
+    }
+
+    protected Snapshot getSnapshot() {
+
+        // the factory checks the container files on access and bumps its modification count if they changed;
+        // until the first parse it hands out a new empty parser on every call, so the parser itself is no key
+        ServiceXmlParserFactory serviceXmlParserFactory = ServiceXmlParserFactory.getInstance(this.project);
+        serviceXmlParserFactory.parser(TwigPathServiceParser.class);
+
+        Snapshot snapshot = this.snapshot;
+        if(snapshot == null || this.outdated || snapshot.getContainerModificationCount() != serviceXmlParserFactory.getModificationCount()) {
+            this.scheduleBuild();
+        }
+
+        // build may have run synchronously
+        snapshot = this.snapshot;
+        return snapshot != null ? snapshot : EMPTY_SNAPSHOT;
+    }
+
+    protected void scheduleBuild() {
+
+        if(this.disposed || !this.building.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.outdated = false;
+
+        Runnable runnable = new Runnable() {
+            public void run() {
+                try {
+                    Snapshot snapshot = ApplicationManager.getApplication().runReadAction(new Computable<Snapshot>() {
+                        @Override
+                        public Snapshot compute() {
+                            return build(ServiceXmlParserFactory.getInstance(project).getModificationCount());
+                        }
+                    });
+
+                    if(!TwigTemplateIndex.this.disposed) {
+                        TwigTemplateIndex.this.setSnapshot(snapshot);
+                    }
+                } finally {
+                    TwigTemplateIndex.this.building.set(false);
+                }
+            }
+        };
+
+        Application application = ApplicationManager.getApplication();
+        if(application.isUnitTestMode()) {
+            runnable.run();
+        } else {
+            application.executeOnPooledThread(runnable);
+        }
+
+    }
+
+    protected Snapshot build(long containerModificationCount) {
+
+        List<TwigPath> twigPaths = new ArrayList<TwigPath>();
+        List<VirtualFile> directories = new ArrayList<VirtualFile>();
+        final Map<String, VirtualFile> templateFiles = new HashMap<String, VirtualFile>();
+        final Set<String> shadowedNames = new HashSet<String>();
+        ProjectFileIndex fileIndex = ProjectFileIndex.SERVICE.getInstance(this.project);
+
+        // later paths overwrite templates of former ones
+        for(final TwigPath twigPath: TwigHelper.getTwigNamespaces(this.project)) {
+            if(!twigPath.isEnabled()) {
+                continue;
+            }
+
+            final VirtualFile virtualDirectoryFile = twigPath.getDirectory(this.project);
+            if(virtualDirectoryFile == null) {
+                continue;
+            }
+
+            twigPaths.add(twigPath);
+            directories.add(virtualDirectoryFile);
+            fileIndex.iterateContentUnderDirectory(virtualDirectoryFile, new ContentIterator() {
+                @Override
+                public boolean processFile(VirtualFile virtualFile) {
+                    if(isTemplateFile(virtualFile)) {
+                        String templateName = TwigPathContentIterator.getTemplateName(twigPath, virtualDirectoryFile, virtualFile);
+                        if(templateName != null && templateFiles.put(templateName, virtualFile) != null) {
+                            shadowedNames.add(templateName);
+                        }
+                    }
+                    return true;
+                }
+            });
+        }
+
+        return new Snapshot(containerModificationCount, twigPaths, directories, Collections.unmodifiableMap(templateFiles), shadowedNames);
+    }
+
+    /**
+     * file or directory is about to be deleted, moved or renamed
+     */
+    protected void fileRemoved(@Nullable VirtualFile virtualFile) {
+
+        Snapshot snapshot = this.snapshot;
+        if(snapshot == null || virtualFile == null) {
+            return;
+        }
+
+        if(isTwigPathChange(snapshot, virtualFile)) {
+            this.setOutdated();
+            return;
+        }
+
+        if(snapshot.isInTwigPath(virtualFile)) {
+            Snapshot newSnapshot = snapshot.remove(virtualFile);
+            if(newSnapshot == null) {
+                this.setOutdated();
+            } else if(newSnapshot != snapshot) {
+                this.setChangedSnapshot(newSnapshot);
+            }
+        }
+
+    }
+
+    /**
+     * file or directory was created, moved or renamed
+     */
+    protected void fileAdded(@Nullable VirtualFile virtualFile) {
+
+        Snapshot snapshot = this.snapshot;
+        if(snapshot == null || virtualFile == null) {
+            return;
+        }
+
+        if(isTwigPathChange(snapshot, virtualFile)) {
+            this.setOutdated();
+            return;
+        }
+
+        if(snapshot.isInTwigPath(virtualFile)) {
+            Snapshot newSnapshot = snapshot.add(virtualFile);
+            if(newSnapshot == null) {
+                this.setOutdated();
+            } else if(newSnapshot != snapshot) {
+                this.setChangedSnapshot(newSnapshot);
+            }
+        }
+
+    }
+
+    /**
+     * bundle classes, twig path directories or their parents, or new "Resources/views" directories change the twig paths
+     */
+    protected static boolean isTwigPathChange(Snapshot snapshot, VirtualFile virtualFile) {
+
+        if(!virtualFile.isDirectory()) {
+            return virtualFile.getName().endsWith("Bundle.php");
+        }
+
+        if(virtualFile.getName().equals("views") && virtualFile.getParent() != null && virtualFile.getParent().getName().equals("Resources")) {
+            return true;
+        }
+
+        for(VirtualFile directory: snapshot.getDirectories()) {
+            if(VfsUtil.isAncestor(virtualFile, directory, false)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected void setOutdated() {
+        this.outdated = true;
+        this.modificationCount.incrementAndGet();
+    }
+
+    /**
+     * snapshot with a single change applied
+     */
+    protected void setChangedSnapshot(Snapshot snapshot) {
+
+        // a running build may not have seen this change
+        if(this.building.get()) {
+            this.outdated = true;
+        }
+
+        this.setSnapshot(snapshot);
+    }
+
+    protected void setSnapshot(@Nullable Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.modificationCount.incrementAndGet();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    public void setCacheInvalid() {
+        this.setOutdated();
+    }
+
+    @Override
+    public void dispose() {
+        this.disposed = true;
+        this.snapshot = null;
+    }
+
+    public static boolean isTemplateFile(VirtualFile virtualFile) {
+        return !virtualFile.isDirectory() && (virtualFile.getFileType() instanceof TwigFileType || virtualFile.getFileType() instanceof PhpFileType);
+    }
+
+    public static TwigTemplateIndex getInstance(Project project) {
+        return ServiceManager.getService(project, TwigTemplateIndex.class);
+    }
+
+    protected static class Snapshot {
+
+        private final long containerModificationCount;
+        private final List<TwigPath> twigPaths;
+        private final List<VirtualFile> directories;
+        private final Map<String, VirtualFile> templateFiles;
+
+        /**
+         * names found in more than one twig path; removing one of them needs a rebuild to find the next one
+         */
+        private final Set<String> shadowedNames;
+
+        @Nullable
+        private volatile StringPrefixIndex prefixIndex;
+
+        public Snapshot(long containerModificationCount, List<TwigPath> twigPaths, List<VirtualFile> directories, Map<String, VirtualFile> templateFiles, Set<String> shadowedNames) {
+            this.containerModificationCount = containerModificationCount;
+            this.twigPaths = twigPaths;
+            this.directories = directories;
+            this.templateFiles = templateFiles;
+            this.shadowedNames = shadowedNames;
+        }
+
+        /**
+         * modification count of the container parsers the twig paths were read with
+         */
+        public long getContainerModificationCount() {
+            return containerModificationCount;
+        }
+
+        public Map<String, VirtualFile> getTemplateFiles() {
+            return templateFiles;
+        }
+
+        public List<VirtualFile> getDirectories() {
+            return directories;
+        }
+
+        /**
+         * only needed on completion, so build on first use
+         */
+        public StringPrefixIndex getPrefixIndex() {
+            StringPrefixIndex prefixIndex = this.prefixIndex;
+            if(prefixIndex == null) {
+                prefixIndex = new StringPrefixIndex(this.templateFiles.keySet());
+                this.prefixIndex = prefixIndex;
+            }
+
+            return prefixIndex;
+        }
+
+        public boolean isInTwigPath(VirtualFile virtualFile) {
+            for(VirtualFile directory: this.directories) {
+                if(VfsUtil.isAncestor(directory, virtualFile, true)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @param virtualFile template or directory with templates
+         * @return snapshot with the new templates or null if a template name is already known; a rebuild decides which one wins
+         */
+        @Nullable
+        public Snapshot add(VirtualFile virtualFile) {
+
+            List<VirtualFile> files = new ArrayList<VirtualFile>();
+            collectTemplateFiles(virtualFile, files);
+            if(files.size() == 0) {
+                return this;
+            }
+
+            Map<String, VirtualFile> templateFiles = new HashMap<String, VirtualFile>(this.templateFiles);
+            for(VirtualFile file: files) {
+                for(int i = 0; i < this.twigPaths.size(); i++) {
+                    VirtualFile directory = this.directories.get(i);
+                    if(!VfsUtil.isAncestor(directory, file, true)) {
+                        continue;
+                    }
+
+                    String templateName = TwigPathContentIterator.getTemplateName(this.twigPaths.get(i), directory, file);
+                    if(templateName != null) {
+                        if(templateFiles.containsKey(templateName)) {
+                            return null;
+                        }
+                        templateFiles.put(templateName, file);
+                    }
+                }
+            }
+
+            return new Snapshot(this.containerModificationCount, this.twigPaths, this.directories, Collections.unmodifiableMap(templateFiles), this.shadowedNames);
+        }
+
+        /**
+         * @param virtualFile template or directory with templates
+         * @return snapshot without the templates or null if a removed name may be provided by another twig path
+         */
+        @Nullable
+        public Snapshot remove(VirtualFile virtualFile) {
+
+            Map<String, VirtualFile> templateFiles = null;
+            for(Map.Entry<String, VirtualFile> entry: this.templateFiles.entrySet()) {
+                if(!VfsUtil.isAncestor(virtualFile, entry.getValue(), false)) {
+                    continue;
+                }
+
+                if(this.shadowedNames.contains(entry.getKey())) {
+                    return null;
+                }
+
+                if(templateFiles == null) {
+                    templateFiles = new HashMap<String, VirtualFile>(this.templateFiles);
+                }
+                templateFiles.remove(entry.getKey());
+            }
+
+            if(templateFiles == null) {
+                return this;
+            }
+
+            return new Snapshot(this.containerModificationCount, this.twigPaths, this.directories, Collections.unmodifiableMap(templateFiles), this.shadowedNames);
+        }
+
+        private static void collectTemplateFiles(VirtualFile virtualFile, List<VirtualFile> files) {
+
+            if(!virtualFile.isDirectory()) {
+                if(isTemplateFile(virtualFile)) {
+                    files.add(virtualFile);
+                }
+                return;
+            }
+
+            for(VirtualFile child: virtualFile.getChildren()) {
+                collectTemplateFiles(child, files);
+            }
+
+        }
+
+    }
+
+}
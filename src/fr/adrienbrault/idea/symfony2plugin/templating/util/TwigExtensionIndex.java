@@ -0,0 +1,278 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.util;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.psi.elements.ArrayHashElement;
+import com.jetbrains.php.lang.psi.elements.ClassReference;
+import com.jetbrains.php.lang.psi.elements.Method;
+import com.jetbrains.php.lang.psi.elements.NewExpression;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import com.jetbrains.php.lang.psi.elements.StringLiteralExpression;
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
+import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class name with leading backslash to the twig functions and filters registered in its getFunctions / getFilters methods.
+ *
+ * Every class of a php file is indexed on its own, the platform reindexes only changed files;
+ * whether a class is a twig extension depends on its hierarchy and is checked on lookup.
+ */
+public class TwigExtensionIndex implements FileBasedIndexExtension<String, TwigExtensionIndex.ExtensionElements> {
+
+    public static final ID<String, ExtensionElements> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.twig_extensions");
+
+    private final KeyDescriptor<String> keyDescriptor = new EnumeratorStringDescriptor();
+
+    @NotNull
+    @Override
+    public ID<String, ExtensionElements> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, ExtensionElements, FileContent> getIndexer() {
+        return new DataIndexer<String, ExtensionElements, FileContent>() {
+            @NotNull
+            @Override
+            public Map<String, ExtensionElements> map(FileContent inputData) {
+
+                // no twig class used, no psi needed
+                if(!inputData.getContentAsText().toString().contains("Twig_")) {
+                    return Collections.emptyMap();
+                }
+
+                Map<String, ExtensionElements> extensions = new HashMap<String, ExtensionElements>();
+                for(PhpClass phpClass: PsiTreeUtil.findChildrenOfType(inputData.getPsiFile(), PhpClass.class)) {
+
+                    ExtensionElements extensionElements = new ExtensionElements();
+                    for(Method method: phpClass.getOwnMethods()) {
+                        if("getFunctions".equals(method.getName()) || "getFilters".equals(method.getName())) {
+                            visitMethod(phpClass, method, extensionElements);
+                        }
+                    }
+
+                    String className = phpClass.getPresentableFQN();
+                    if(className != null && !extensionElements.isEmpty()) {
+                        extensions.put(className.startsWith("\\") ? className : "\\" + className, extensionElements);
+                    }
+                }
+
+                return extensions;
+            }
+        };
+    }
+
+    /**
+     * new \Twig_SimpleFunction('foo', 'foo_function'), new \Twig_SimpleFilter('foo', ...)
+     * 'foo' => new \Twig_Function_Method($this, 'foo'), 'foo' => new \Twig_Function_Node('Foo\Node', ...), 'foo' => new \Twig_Filter_Function(...)
+     */
+    private static void visitMethod(PhpClass phpClass, Method method, ExtensionElements extensionElements) {
+
+        for(NewExpression newExpression: PsiTreeUtil.findChildrenOfType(method, NewExpression.class)) {
+
+            ClassReference classReference = newExpression.getClassReference();
+            if(classReference == null || classReference.getName() == null) {
+                continue;
+            }
+
+            String type = classReference.getName();
+            PsiElement[] parameters = newExpression.getParameters();
+
+            if(type.equals("Twig_SimpleFunction") || type.equals("Twig_SimpleFilter")) {
+
+                if(parameters.length == 0 || !(parameters[0] instanceof StringLiteralExpression)) {
+                    continue;
+                }
+
+                String name = ((StringLiteralExpression) parameters[0]).getContents();
+                if(name.contains("*")) {
+                    continue;
+                }
+
+                if(type.equals("Twig_SimpleFilter")) {
+                    extensionElements.getFilters().put(name, type);
+                } else if(parameters.length > 1) {
+                    extensionElements.getFunctions().put(name, new TwigExtension(TwigExtensionParser.TwigExtensionType.SIMPLE_FUNCTION, "#F" + PsiElementUtils.trimQuote(parameters[1].getText().trim())));
+                }
+
+                continue;
+            }
+
+            if(!(type.equals("Twig_Function_Method") || type.equals("Twig_Function_Node") || type.equals("Twig_Filter_Function"))) {
+                continue;
+            }
+
+            String name = getArrayKey(newExpression);
+            if(name == null || name.contains("*")) {
+                continue;
+            }
+
+            if(type.equals("Twig_Filter_Function")) {
+                extensionElements.getFilters().put(name, type);
+            } else if(type.equals("Twig_Function_Node")) {
+                if(parameters.length > 0) {
+                    extensionElements.getFunctions().put(name, new TwigExtension(TwigExtensionParser.TwigExtensionType.FUNCTION_NODE, "#M#C\\" + PsiElementUtils.trimQuote(parameters[0].getText().trim()) + ".compile"));
+                }
+            } else if(parameters.length > 1) {
+                String signature = null;
+                if(parameters[0].getText().trim().equals("$this")) {
+                    signature = "#M#C\\" + phpClass.getPresentableFQN() + "." + PsiElementUtils.trimQuote(parameters[1].getText().trim());
+                }
+
+                extensionElements.getFunctions().put(name, new TwigExtension(TwigExtensionParser.TwigExtensionType.FUNCTION_METHOD, signature));
+            }
+        }
+
+    }
+
+    /**
+     * 'foo' of "'foo' => new ..."
+     */
+    @Nullable
+    private static String getArrayKey(NewExpression newExpression) {
+
+        ArrayHashElement arrayHashElement = PsiTreeUtil.getParentOfType(newExpression, ArrayHashElement.class);
+        if(arrayHashElement == null || arrayHashElement.getKey() == null || !PsiTreeUtil.isAncestor(arrayHashElement.getValue(), newExpression, false)) {
+            return null;
+        }
+
+        String key = arrayHashElement.getKey().getText().trim();
+        if(key.length() < 2 || !(key.startsWith("'") || key.startsWith("\""))) {
+            return null;
+        }
+
+        return PsiElementUtils.trimQuote(key);
+    }
+
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.keyDescriptor;
+    }
+
+    @Override
+    public DataExternalizer<ExtensionElements> getValueExternalizer() {
+        return new DataExternalizer<ExtensionElements>() {
+            @Override
+            public void save(DataOutput out, ExtensionElements value) throws IOException {
+
+                out.writeInt(value.getFunctions().size());
+                for(Map.Entry<String, TwigExtension> entry: value.getFunctions().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().getTwigExtensionType().ordinal());
+                    out.writeBoolean(entry.getValue().getSignature() != null);
+                    if(entry.getValue().getSignature() != null) {
+                        out.writeUTF(entry.getValue().getSignature());
+                    }
+                }
+
+                out.writeInt(value.getFilters().size());
+                for(Map.Entry<String, String> entry: value.getFilters().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+            }
+
+            @Override
+            public ExtensionElements read(DataInput in) throws IOException {
+
+                ExtensionElements extensionElements = new ExtensionElements();
+
+                int functions = in.readInt();
+                for(int i = 0; i < functions; i++) {
+                    String name = in.readUTF();
+                    TwigExtensionParser.TwigExtensionType type = TwigExtensionParser.TwigExtensionType.values()[in.readInt()];
+                    extensionElements.getFunctions().put(name, new TwigExtension(type, in.readBoolean() ? in.readUTF() : null));
+                }
+
+                int filters = in.readInt();
+                for(int i = 0; i < filters; i++) {
+                    extensionElements.getFilters().put(in.readUTF(), in.readUTF());
+                }
+
+                return extensionElements;
+            }
+        };
+    }
+
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new FileBasedIndex.InputFilter() {
+            @Override
+            public boolean acceptInput(VirtualFile file) {
+                return file.getFileType() == PhpFileType.INSTANCE;
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    public int getCacheSize() {
+        return DEFAULT_CACHE_SIZE;
+    }
+
+    /**
+     * functions and filters of one class
+     */
+    public static class ExtensionElements {
+
+        private final Map<String, TwigExtension> functions = new HashMap<String, TwigExtension>();
+        private final Map<String, String> filters = new HashMap<String, String>();
+
+        public Map<String, TwigExtension> getFunctions() {
+            return functions;
+        }
+
+        /**
+         * filter name to its twig class, like "Twig_SimpleFilter"
+         */
+        public Map<String, String> getFilters() {
+            return filters;
+        }
+
+        public boolean isEmpty() {
+            return functions.isEmpty() && filters.isEmpty();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ExtensionElements
+                && this.functions.equals(((ExtensionElements) o).functions)
+                && this.filters.equals(((ExtensionElements) o).filters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.functions.hashCode() + this.filters.hashCode();
+        }
+
+    }
+
+}
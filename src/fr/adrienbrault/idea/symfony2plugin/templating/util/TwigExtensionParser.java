@@ -1,162 +1,135 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.util;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.PhpIndex;
-import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
-import com.jetbrains.php.lang.psi.elements.PhpNamedElement;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
-import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 
 import javax.swing.*;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Functions and filters of all twig extensions in the project.
+ *
+ * getFunctions / getFilters of every extension class are read from the TwigExtensionIndex, so only changed files are parsed;
+ * the merged registry is only build again if a file holding an extension class changed, see TwigExtensionTracker.
+ * Returned maps are immutable and safe for concurrent readers.
+ */
 public class TwigExtensionParser  {
 
-    private Project project;
+    private static final Key<CachedValue<List<String>>> EXTENSION_CLASS_NAMES = new Key<CachedValue<List<String>>>("SYMFONY2_TWIG_EXTENSION_CLASS_NAMES");
+    private static final Key<CachedValue<Map<String, TwigExtension>>> FUNCTIONS = new Key<CachedValue<Map<String, TwigExtension>>>("SYMFONY2_TWIG_EXTENSION_FUNCTIONS");
+    private static final Key<CachedValue<Map<String, String>>> FILTERS = new Key<CachedValue<Map<String, String>>>("SYMFONY2_TWIG_EXTENSION_FILTERS");
 
-    private HashMap<String, TwigExtension> functions;
-    private HashMap<String, String> filters;
+    private Project project;
 
     public TwigExtensionParser(Project project) {
         this.project = project;
     }
 
-    public HashMap<String, TwigExtension> getFunctions() {
-        if(filters == null) {
-            this.parseElementType(TwigElementType.METHOD);
-        }
-        return functions;
-    }
+    public Map<String, TwigExtension> getFunctions() {
 
-    public HashMap<String, String> getFilters() {
-        if(filters == null) {
-            this.parseElementType(TwigElementType.FILTER);
-        }
-        return filters;
-    }
+        // a changed class hierarchy updates the known extension files of the tracker
+        getExtensionClassNames();
 
-    public enum TwigElementType {
-        FILTER, METHOD
-    }
+        return CachedValuesManager.getManager(this.project).getCachedValue(this.project, FUNCTIONS, new CachedValueProvider<Map<String, TwigExtension>>() {
+            @Override
+            public Result<Map<String, TwigExtension>> compute() {
 
-    public enum TwigExtensionType {
-        FUNCTION_METHOD, FUNCTION_NODE, SIMPLE_FUNCTION
-    }
-
-    private void parseElementType(TwigElementType type) {
+                HashMap<String, TwigExtension> functions = new HashMap<String, TwigExtension>();
+                for(TwigExtensionIndex.ExtensionElements extensionElements: getExtensionElements()) {
+                    functions.putAll(extensionElements.getFunctions());
+                }
 
-        // only the interface gaves use all elements; container dont hold all
-        PhpIndex phpIndex = PhpIndex.getInstance(this.project);
-        ArrayList<String> classNames = new ArrayList<String>();
-        for(PhpClass phpClass : phpIndex.getAllSubclasses("\\Twig_ExtensionInterface")) {
-            String className = phpClass.getPresentableFQN();
-            if(className != null) {
-                // signature class names need slash at first
-                classNames.add(className.startsWith("\\") ? className : "\\" + className);
+                return Result.create((Map<String, TwigExtension>) Collections.unmodifiableMap(functions), TwigExtensionTracker.getInstance(project));
             }
-        }
+        }, false);
+    }
 
-        if(type.equals(TwigElementType.FILTER)) {
-            this.parseFilters(classNames);
-        }
+    public Map<String, String> getFilters() {
 
-        if(type.equals(TwigElementType.METHOD)) {
-            this.parseFunctions(classNames);
-        }
+        // a changed class hierarchy updates the known extension files of the tracker
+        getExtensionClassNames();
 
-    }
+        return CachedValuesManager.getManager(this.project).getCachedValue(this.project, FILTERS, new CachedValueProvider<Map<String, String>>() {
+            @Override
+            public Result<Map<String, String>> compute() {
 
-    private void parseFilters(ArrayList<String> classNames) {
-        this.filters = new HashMap<String, String>();
-        for(String phpClassName : classNames) {
-            PhpIndex phpIndex = PhpIndex.getInstance(this.project);
-            Collection<? extends PhpNamedElement> phpNamedElementCollections = phpIndex.getBySignature("#M#C" + phpClassName + "." + "getFilters", null, 0);
-            for(PhpNamedElement phpNamedElement: phpNamedElementCollections) {
-                if(phpNamedElement instanceof Method) {
-                    parseFilter(phpNamedElement.getText(), this.filters);
+                HashMap<String, String> filters = new HashMap<String, String>();
+                for(TwigExtensionIndex.ExtensionElements extensionElements: getExtensionElements()) {
+                    filters.putAll(extensionElements.getFilters());
                 }
-            }
-        }
-    }
-
-    private void parseFunctions(ArrayList<String> classNames) {
-        this.functions = new HashMap<String, TwigExtension>();
-        for(String phpClassName : classNames) {
 
-            PhpIndex phpIndex = PhpIndex.getInstance(this.project);
-            Collection<? extends PhpNamedElement> phpNamedElementCollections = phpIndex.getBySignature("#M#C" + phpClassName + "." + "getFunctions", null, 0);
-            for(PhpNamedElement phpNamedElement: phpNamedElementCollections) {
-                if(phpNamedElement instanceof Method) {
-                    parseFunctions((Method) phpNamedElement, this.functions);
-                }
+                return Result.create((Map<String, String>) Collections.unmodifiableMap(filters), TwigExtensionTracker.getInstance(project));
             }
-        }
+        }, false);
     }
 
-    protected HashMap<String, TwigExtension> parseFunctions(Method method, HashMap<String, TwigExtension> filters) {
-
-        String text = method.getText();
+    public enum TwigElementType {
+        FILTER, METHOD
+    }
 
-        Matcher simpleFunction = Pattern.compile("[\\\\]*(Twig_SimpleFunction)[\\s+]*\\(['\"](.*?)['\"][\\s+]*,(.*?)[,|)]").matcher(text);
-        while(simpleFunction.find()){
-            if(!simpleFunction.group(2).contains("*")) {
-                filters.put(simpleFunction.group(2),  new TwigExtension(TwigExtensionType.SIMPLE_FUNCTION, "#F" + PsiElementUtils.trimQuote(simpleFunction.group(3).trim())));
-            }
-        }
+    public enum TwigExtensionType {
+        FUNCTION_METHOD, FUNCTION_NODE, SIMPLE_FUNCTION
+    }
 
-        Matcher filterFunction = Pattern.compile("['\"](.*?)['\"][\\s+]*=>[\\s+]*new[\\s+]*[\\\\]*(Twig_Function_Method)\\((.*?),(.*?)[,|)]").matcher(text);
-        while(filterFunction.find()){
-            if(!filterFunction.group(1).contains("*")) {
-                String type = filterFunction.group(2);
+    private List<TwigExtensionIndex.ExtensionElements> getExtensionElements() {
 
-                String signature = null;
-                if(filterFunction.group(3).trim().equals("$this")) {
-                    PhpClass phpClass = method.getContainingClass();
-                    if(phpClass != null) {
-                        signature = "#M#C\\" + phpClass.getPresentableFQN() + "." + PsiElementUtils.trimQuote(filterFunction.group(4).trim());
-                    }
-                }
+        FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(this.project);
 
-                filters.put(filterFunction.group(1), new TwigExtension(TwigExtensionType.FUNCTION_METHOD, signature));
-            }
+        List<TwigExtensionIndex.ExtensionElements> extensionElements = new ArrayList<TwigExtensionIndex.ExtensionElements>();
+        for(String className: getExtensionClassNames()) {
+            extensionElements.addAll(fileBasedIndex.getValues(TwigExtensionIndex.KEY, className, scope));
         }
 
-        Matcher filterFunctionNode = Pattern.compile("['\"](.*?)['\"][\\s+]*=>[\\s+]*new[\\s+]*[\\\\]*(Twig_Function_Node)\\((.*?),").matcher(text);
-        while(filterFunctionNode.find()){
-            if(!filterFunctionNode.group(1).contains("*")) {
-                filters.put(filterFunctionNode.group(1), new TwigExtension(TwigExtensionType.FUNCTION_NODE, "#M#C\\" + PsiElementUtils.trimQuote(filterFunctionNode.group(3).trim()) + ".compile"));
-            }
-        }
-
-        return filters;
-
+        return extensionElements;
     }
 
-    protected HashMap<String, String> parseFilter(String text, HashMap<String, String> filters) {
+    /**
+     * class hierarchy only changes outside of code blocks
+     */
+    private List<String> getExtensionClassNames() {
+        return CachedValuesManager.getManager(this.project).getCachedValue(this.project, EXTENSION_CLASS_NAMES, new CachedValueProvider<List<String>>() {
+            @Override
+            public Result<List<String>> compute() {
+
+                // only the interface gaves use all elements; container dont hold all
+                ArrayList<String> classNames = new ArrayList<String>();
+                Set<VirtualFile> files = new HashSet<VirtualFile>();
+                for(PhpClass phpClass : PhpIndex.getInstance(project).getAllSubclasses("\\Twig_ExtensionInterface")) {
+                    String className = phpClass.getPresentableFQN();
+                    if(className != null) {
+                        // signature class names need slash at first
+                        classNames.add(className.startsWith("\\") ? className : "\\" + className);
+                    }
 
-        Matcher simpleFilter = Pattern.compile("[\\\\]*(Twig_SimpleFilter)[\\s+]*\\(['\"](.*?)['\"][\\s+]*").matcher(text);
-        while(simpleFilter.find()){
-            if(!simpleFilter.group(2).contains("*")) {
-                filters.put(simpleFilter.group(2), simpleFilter.group(1));
-            }
-        }
+                    VirtualFile virtualFile = phpClass.getContainingFile().getVirtualFile();
+                    if(virtualFile != null) {
+                        files.add(virtualFile);
+                    }
+                }
 
+                TwigExtensionTracker.getInstance(project).setExtensionClasses(classNames, files);
 
-        Matcher filterFunction = Pattern.compile("['\"](.*?)['\"][\\s+]*=>[\\s+]*new[\\s+]*[\\\\]*(Twig_Filter_Function)").matcher(text);
-        while(filterFunction.find()){
-            if(!filterFunction.group(1).contains("*")) {
-                filters.put(filterFunction.group(1), filterFunction.group(2));
+                return Result.create((List<String>) classNames, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
             }
-        }
-
-        return filters;
-
+        }, false);
     }
 
     public static Icon getIcon(TwigExtensionType twigExtensionType) {
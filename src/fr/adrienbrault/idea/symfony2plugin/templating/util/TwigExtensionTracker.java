@@ -0,0 +1,124 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.util;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes of the php files holding twig extension classes, so the merged function and filter registry
+ * is not thrown away on edits of any other file.
+ *
+ * The known extension classes and their files are updated by TwigExtensionParser; a new or removed extension class counts as change too.
+ */
+public class TwigExtensionTracker implements ModificationTracker {
+
+    protected AtomicLong modificationCount = new AtomicLong();
+
+    protected volatile Set<String> classNames = Collections.emptySet();
+    protected volatile Set<VirtualFile> files = Collections.emptySet();
+
+    public TwigExtensionTracker(Project project) {
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void childAdded(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childMoved(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+
+            @Override
+            public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+                psiChanged(event);
+            }
+        }, project);
+
+        // changes of files without loaded psi, like a vcs update
+        project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+            @Override
+            public void after(List<? extends VFileEvent> events) {
+                for(VFileEvent event: events) {
+                    VirtualFile virtualFile = event.getFile();
+                    if(virtualFile != null && TwigExtensionTracker.this.files.contains(virtualFile)) {
+                        TwigExtensionTracker.this.modificationCount.incrementAndGet();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private void psiChanged(PsiTreeChangeEvent event) {
+
+        PsiFile psiFile = event.getFile();
+        if(psiFile == null) {
+            return;
+        }
+
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if(virtualFile != null && this.files.contains(virtualFile)) {
+            this.modificationCount.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * @param classNames extension class names with leading backslash
+     * @param files files the extension classes are defined in
+     */
+    public void setExtensionClasses(Collection<String> classNames, Collection<VirtualFile> files) {
+
+        this.files = Collections.unmodifiableSet(new HashSet<VirtualFile>(files));
+
+        Set<String> classNameSet = new HashSet<String>(classNames);
+        if(!classNameSet.equals(this.classNames)) {
+            this.classNames = Collections.unmodifiableSet(classNameSet);
+            this.modificationCount.incrementAndGet();
+        }
+
+    }
+
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    public static TwigExtensionTracker getInstance(Project project) {
+        return ServiceManager.getService(project, TwigExtensionTracker.class);
+    }
+
+}
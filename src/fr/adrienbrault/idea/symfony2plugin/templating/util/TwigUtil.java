@@ -1,8 +1,11 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.util;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.jetbrains.php.PhpIndex;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.twig.TwigFile;
@@ -10,21 +13,29 @@ import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigMacro;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigMarcoParser;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigSet;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class TwigUtil {
 
+    private static final Pattern FROM_IMPORT_PATTERN = Pattern.compile("\\{%\\s?from\\s?['\"](.*?)['\"]\\s?import\\s?(.*?)\\s?%}");
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("\\{%\\s?import\\s?['\"](.*?)['\"]\\s?as\\s?(.*?)\\s?%}");
+
+    private static final Key<CachedValue<List<TwigMacro>>> IMPORTED_MACROS = new Key<CachedValue<List<TwigMacro>>>("SYMFONY2_TWIG_IMPORTED_MACROS");
+    private static final Key<CachedValue<List<TwigMacro>>> IMPORTED_MACROS_NAMESPACES = new Key<CachedValue<List<TwigMacro>>>("SYMFONY2_TWIG_IMPORTED_MACROS_NAMESPACES");
+
     public static String getControllerMethodShortcut(Method method) {
 
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(PhpIndex.getInstance(method.getProject()));
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(method.getProject());
 
         // indexAction
         String methodName = method.getName();
@@ -142,53 +153,66 @@ public class TwigUtil {
         return domainName;
     }
 
-    public static ArrayList<TwigMacro> getImportedMacros(PsiFile psiFile) {
-
-        ArrayList<TwigMacro> macros = new ArrayList<TwigMacro>();
+    /**
+     * {% from '@foo/bar.html.twig' import macro1, macro_foo_bar %}; cached until the file changes
+     */
+    public static List<TwigMacro> getImportedMacros(PsiFile psiFile) {
 
-        String str = psiFile.getText();
+        final PsiFile originalFile = psiFile.getOriginalFile();
+        return CachedValuesManager.getManager(originalFile.getProject()).getCachedValue(originalFile, IMPORTED_MACROS, new CachedValueProvider<List<TwigMacro>>() {
+            @Override
+            public Result<List<TwigMacro>> compute() {
+                ArrayList<TwigMacro> macros = new ArrayList<TwigMacro>();
 
-        // {% from '@foo/bar.html.twig' import macro1, macro_foo_bar %}
-        String regex = "\\{%\\s?from\\s?['\"](.*?)['\"]\\s?import\\s?(.*?)\\s?%}";
-        Matcher matcher = Pattern.compile(regex).matcher(str.replace("\n", " "));
+                Matcher matcher = FROM_IMPORT_PATTERN.matcher(originalFile.getText().replace("\n", " "));
+                while (matcher.find()) {
 
-        while (matcher.find()) {
+                    String templateName = matcher.group(1);
+                    for(String macroName : matcher.group(2).split(",")) {
+                        macros.add(new TwigMacro(macroName.trim(), templateName));
+                    }
+                }
 
-            String templateName = matcher.group(1);
-            for(String macroName : matcher.group(2).split(",")) {
-                macros.add(new TwigMacro(macroName.trim(), templateName));
+                return Result.create(Collections.unmodifiableList(macros), originalFile);
             }
-        }
-
-        return macros;
+        }, false);
 
     }
 
-    public static ArrayList<TwigMacro> getImportedMacrosNamespaces(PsiFile psiFile) {
+    /**
+     * {% import '@foo/bar.html.twig' as macro1 %}; cached until the file, one of the imported files or the template index changes
+     */
+    public static List<TwigMacro> getImportedMacrosNamespaces(PsiFile psiFile) {
 
-        ArrayList<TwigMacro> macros = new ArrayList<TwigMacro>();
+        final PsiFile originalFile = psiFile.getOriginalFile();
+        return CachedValuesManager.getManager(originalFile.getProject()).getCachedValue(originalFile, IMPORTED_MACROS_NAMESPACES, new CachedValueProvider<List<TwigMacro>>() {
+            @Override
+            public Result<List<TwigMacro>> compute() {
+                ArrayList<TwigMacro> macros = new ArrayList<TwigMacro>();
 
-        String str = psiFile.getText();
+                List<Object> dependencies = new ArrayList<Object>();
+                dependencies.add(originalFile);
+                dependencies.add(TwigTemplateIndex.getInstance(originalFile.getProject()));
 
-        // {% import '@foo/bar.html.twig' as macro1 %}
-        String regex = "\\{%\\s?import\\s?['\"](.*?)['\"]\\s?as\\s?(.*?)\\s?%}";
-        Matcher matcher = Pattern.compile(regex).matcher(str.replace("\n", " "));
+                Matcher matcher = IMPORT_PATTERN.matcher(originalFile.getText().replace("\n", " "));
+                while (matcher.find()) {
 
-        Map<String, TwigFile> twigFilesByName = TwigHelper.getTwigFilesByName(psiFile.getProject());
-        while (matcher.find()) {
+                    String templateName = matcher.group(1);
+                    String asName = matcher.group(2);
 
-            String templateName = matcher.group(1);
-            String asName = matcher.group(2);
+                    TwigFile twigFile = TwigHelper.getTwigFileByName(originalFile.getProject(), templateName);
+                    if(twigFile != null) {
+                        dependencies.add(twigFile);
+                        for (Map.Entry<String, String> entry: new TwigMarcoParser().getMacros(twigFile).entrySet()) {
+                            macros.add(new TwigMacro(asName + '.' + entry.getKey(), templateName));
+                        }
+                    }
 
-            if(twigFilesByName.containsKey(templateName)) {
-                for (Map.Entry<String, String> entry: new TwigMarcoParser().getMacros(twigFilesByName.get(templateName)).entrySet()) {
-                    macros.add(new TwigMacro(asName + '.' + entry.getKey(), templateName));
                 }
-            }
 
-        }
-
-        return macros;
+                return Result.create(Collections.unmodifiableList(macros), dependencies.toArray());
+            }
+        }, false);
 
     }
 
@@ -18,15 +18,14 @@ import com.intellij.ui.components.JBList;
 import com.jetbrains.twig.TwigFile;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceStringLookupElement;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
 import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
 import fr.adrienbrault.idea.symfony2plugin.routing.RouteLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.templating.TemplateLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import icons.PhpIcons;
 
 import javax.swing.*;
@@ -92,7 +91,7 @@ public class Symfony2SearchForm {
         PsiElement psiElement = null;
 
         if(lookupElement instanceof ServiceStringLookupElement) {
-            ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(this.project, XmlServiceParser.class).getServiceMap();
+            ServiceMap serviceMap = ServiceIndex.getServiceMap(this.project);
             if(serviceMap.getMap().containsKey(lookupElement.getLookupString())) {
                 PsiElement psiElements[] = PhpElementsUtil.getClassInterfacePsiElements(this.project, serviceMap.getMap().get(lookupElement.getLookupString()));
                 if(psiElements.length > 0) {
@@ -134,7 +133,7 @@ public class Symfony2SearchForm {
         ArrayList<LookupElement> items = new ArrayList<LookupElement>();
 
         if(this.toggleService.isSelected()) {
-            Map<String,String> map = ServiceXmlParserFactory.getInstance(this.project, XmlServiceParser.class).getServiceMap().getMap();
+            Map<String,String> map = ServiceIndex.getServiceMap(this.project).getMap();
             for( Map.Entry<String, String> entry: map.entrySet() ) {
                 if(entry.getKey().toLowerCase().contains(filter)) {
                     items.add(new ServiceStringLookupElement(entry.getKey(), entry.getValue()));
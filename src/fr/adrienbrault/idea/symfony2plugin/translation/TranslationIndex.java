@@ -1,69 +1,163 @@
 package fr.adrienbrault.idea.symfony2plugin.translation;
 
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
 import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringParser;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
-public class TranslationIndex {
-
-    protected static Map<Project, TranslationIndex> instance = new HashMap<Project, TranslationIndex>();
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Translation keys of all catalogues in the translation cache directory, every locale.
+ *
+ * Every catalogue file is stamped with its size and modification time; on a change only the changed files are parsed again,
+ * on a pooled thread, and merged with the kept ones. Until the new snapshot is swapped in callers get the previous one.
+ *
+ * The cache directory is written by the application outside of the ide and is mostly excluded, so vfs events are not reliable;
+ * the catalogue stamps are checked at most every few seconds, or on the next access after a vfs event inside the directory.
+ */
+public class TranslationIndex implements Disposable {
+
+    /**
+     * minimum milliseconds between two checks of the catalogue files
+     */
+    private static final long CHECK_INTERVAL = 5000;
 
     protected Project project;
-    protected boolean isCacheInvalid = false;
 
-    private TranslationStringMap translationStringMap;
-    private Long translationStringMapModified;
+    protected volatile Snapshot snapshot = new Snapshot(null, Collections.<String, CatalogueFile>emptyMap(), new TranslationStringMap());
 
-    public static TranslationIndex getInstance(Project project){
+    protected volatile long nextCheck = 0;
 
-        TranslationIndex projectInstance = instance.get(project);
-        if(projectInstance != null) {
-          return projectInstance;
-        }
+    protected AtomicBoolean building = new AtomicBoolean(false);
 
-        projectInstance = new TranslationIndex(project);
-        instance.put(project, projectInstance);
-
-        return projectInstance;
+    protected volatile boolean disposed = false;
 
+    public static TranslationIndex getInstance(Project project){
+        return ServiceManager.getService(project, TranslationIndex.class);
     }
 
     public TranslationIndex(Project project) {
         this.project = project;
-    }
 
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+            @Override
+            public void after(List<? extends VFileEvent> events) {
+
+                String path = TranslationIndex.this.snapshot.getPath();
+                if(path == null) {
+                    return;
+                }
+
+                path = FileUtil.toSystemIndependentName(path);
+                for(VFileEvent event: events) {
+                    if(FileUtil.startsWith(event.getPath(), path)) {
+                        TranslationIndex.this.nextCheck = 0;
+                        return;
+                    }
+                }
+            }
+        });
+    }
 
     public TranslationStringMap getTranslationMap() {
 
-        if(this.isCacheValid()) {
-            return this.translationStringMap;
+        long now = System.currentTimeMillis();
+        if(now >= this.nextCheck) {
+            this.nextCheck = now + CHECK_INTERVAL;
+            this.checkCatalogueFiles();
         }
 
+        // build may have run synchronously
+        return this.snapshot.getTranslationStringMap();
+    }
+
+    protected void checkCatalogueFiles() {
+
         File translationDirectory = this.getTranslationRoot();
         if(null == translationDirectory) {
-            return new TranslationStringMap();
+            if(this.snapshot.getPath() != null && !this.disposed) {
+                this.snapshot = new Snapshot(null, Collections.<String, CatalogueFile>emptyMap(), new TranslationStringMap());
+            }
+            return;
+        }
+
+        List<File> catalogueFiles = TranslationStringParser.getCatalogueFiles(translationDirectory);
+        if(this.snapshot.isModified(translationDirectory, catalogueFiles)) {
+            this.scheduleBuild(translationDirectory, catalogueFiles);
         }
 
-        this.translationStringMapModified = translationDirectory.lastModified();
-        return this.translationStringMap = new TranslationStringParser().parsePathMatcher(translationDirectory.getPath());
     }
 
-    protected boolean isCacheValid() {
+    protected void scheduleBuild(final File translationDirectory, final List<File> catalogueFiles) {
 
-        File translationRootPath = this.getTranslationRoot();
-        if (null == translationRootPath) {
-            return this.isCacheInvalid = false;
+        if(this.disposed || !this.building.compareAndSet(false, true)) {
+            return;
+        }
+
+        Runnable runnable = new Runnable() {
+            public void run() {
+                try {
+                    Snapshot snapshot = build(TranslationIndex.this.snapshot, translationDirectory, catalogueFiles);
+                    if(!TranslationIndex.this.disposed) {
+                        TranslationIndex.this.snapshot = snapshot;
+                    }
+                } finally {
+                    TranslationIndex.this.building.set(false);
+                }
+            }
+        };
+
+        Application application = ApplicationManager.getApplication();
+        if(application.isUnitTestMode()) {
+            runnable.run();
+        } else {
+            application.executeOnPooledThread(runnable);
         }
 
-        Long translationModified = translationRootPath.lastModified();
-        return this.isCacheInvalid = translationModified.equals(translationStringMapModified);
+    }
+
+    protected static Snapshot build(Snapshot previous, File translationDirectory, List<File> catalogueFiles) {
+
+        TranslationStringParser translationStringParser = new TranslationStringParser();
+
+        Map<String, CatalogueFile> files = new HashMap<String, CatalogueFile>();
+        TranslationStringMap translationStringMap = new TranslationStringMap();
+
+        for(File catalogueFile: catalogueFiles) {
+
+            // unchanged files are not parsed again
+            CatalogueFile file = previous.getCatalogueFiles().get(catalogueFile.getAbsolutePath());
+            if(file == null || file.isModified(catalogueFile)) {
+
+                // stamp before reading, so a file changed while we are reading it gets parsed again
+                long length = catalogueFile.length();
+                long lastModified = catalogueFile.lastModified();
+
+                // keep unreadable files as empty ones, they are tried again on their next change
+                TranslationStringMap fileMap = translationStringParser.parse(catalogueFile);
+                file = new CatalogueFile(length, lastModified, fileMap != null ? fileMap : new TranslationStringMap());
+            }
+
+            files.put(catalogueFile.getAbsolutePath(), file);
+            translationStringMap.addAll(file.getTranslationStringMap());
+        }
+
+        return new Snapshot(translationDirectory.getAbsolutePath(), files, translationStringMap);
     }
 
     @Nullable
@@ -82,5 +176,76 @@ public class TranslationIndex {
         return file;
     }
 
+    @Override
+    public void dispose() {
+        this.disposed = true;
+        this.snapshot = new Snapshot(null, Collections.<String, CatalogueFile>emptyMap(), new TranslationStringMap());
+    }
+
+    protected static class CatalogueFile {
+
+        private final long length;
+        private final long lastModified;
+        private final TranslationStringMap translationStringMap;
+
+        public CatalogueFile(long length, long lastModified, TranslationStringMap translationStringMap) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.translationStringMap = translationStringMap;
+        }
+
+        public TranslationStringMap getTranslationStringMap() {
+            return translationStringMap;
+        }
+
+        public boolean isModified(File file) {
+            return file.length() != this.length || file.lastModified() != this.lastModified;
+        }
+
+    }
+
+    protected static class Snapshot {
+
+        @Nullable
+        private final String path;
+        private final Map<String, CatalogueFile> catalogueFiles;
+        private final TranslationStringMap translationStringMap;
+
+        public Snapshot(@Nullable String path, Map<String, CatalogueFile> catalogueFiles, TranslationStringMap translationStringMap) {
+            this.path = path;
+            this.catalogueFiles = catalogueFiles;
+            this.translationStringMap = translationStringMap;
+        }
+
+        @Nullable
+        public String getPath() {
+            return path;
+        }
+
+        public Map<String, CatalogueFile> getCatalogueFiles() {
+            return catalogueFiles;
+        }
+
+        public TranslationStringMap getTranslationStringMap() {
+            return translationStringMap;
+        }
+
+        public boolean isModified(File translationDirectory, List<File> files) {
+
+            if(!translationDirectory.getAbsolutePath().equals(this.path) || files.size() != this.catalogueFiles.size()) {
+                return true;
+            }
+
+            for(File file: files) {
+                CatalogueFile catalogueFile = this.catalogueFiles.get(file.getAbsolutePath());
+                if(catalogueFile == null || catalogueFile.isModified(file)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
 
 }
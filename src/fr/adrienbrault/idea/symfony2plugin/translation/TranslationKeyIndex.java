@@ -0,0 +1,234 @@
+package fr.adrienbrault.idea.symfony2plugin.translation;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.psi.YAMLCompoundValue;
+import org.jetbrains.yaml.psi.YAMLDocument;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "domain:key" to the offset of its translation, for yaml and xliff files in "translations" directories: "messages.de.yml".
+ *
+ * Keys only depend on the file name and content, so the platform keeps the index up to date per file;
+ * a lookup only loads the files which really contain the key.
+ */
+public class TranslationKeyIndex implements FileBasedIndexExtension<String, Integer> {
+
+    public static final ID<String, Integer> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.translation_keys");
+
+    private final KeyDescriptor<String> keyDescriptor = new EnumeratorStringDescriptor();
+
+    @NotNull
+    @Override
+    public ID<String, Integer> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Integer, FileContent> getIndexer() {
+        return new DataIndexer<String, Integer, FileContent>() {
+            @NotNull
+            @Override
+            public Map<String, Integer> map(FileContent inputData) {
+
+                String domain = getDomain(inputData.getFile());
+                if(domain == null) {
+                    return Collections.emptyMap();
+                }
+
+                Map<String, Integer> keys = new HashMap<String, Integer>();
+
+                PsiFile psiFile = inputData.getPsiFile();
+                if(psiFile instanceof YAMLFile) {
+                    YAMLDocument yamlDocument = PsiTreeUtil.findChildOfType(psiFile, YAMLDocument.class);
+                    if(yamlDocument != null) {
+                        visitYamlKeys(domain, "", yamlDocument, keys);
+                    }
+                } else if(psiFile instanceof XmlFile) {
+                    XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+                    if(rootTag != null) {
+                        visitXliffUnits(domain, rootTag, keys);
+                    }
+                }
+
+                return keys;
+            }
+        };
+    }
+
+    /**
+     * nested keys are joined with a dot, like symfony does: "foo: { bar: baz }" is "foo.bar"
+     */
+    private static void visitYamlKeys(String domain, String prefix, PsiElement psiElement, Map<String, Integer> keys) {
+
+        YAMLKeyValue[] yamlKeyValues = PsiTreeUtil.getChildrenOfType(psiElement, YAMLKeyValue.class);
+        if(yamlKeyValues == null) {
+            return;
+        }
+
+        for(YAMLKeyValue yamlKeyValue: yamlKeyValues) {
+            String keyName = prefix + yamlKeyValue.getKeyText();
+
+            YAMLCompoundValue[] yamlCompoundValues = PsiTreeUtil.getChildrenOfType(yamlKeyValue, YAMLCompoundValue.class);
+            if(yamlCompoundValues != null) {
+                for(YAMLCompoundValue yamlCompoundValue: yamlCompoundValues) {
+                    visitYamlKeys(domain, keyName + ".", yamlCompoundValue, keys);
+                }
+                continue;
+            }
+
+            // multiline are line values are not resolve properly on psiElements use key as fallback target
+            PsiElement valuePsiElement = yamlKeyValue.getValue();
+            keys.put(domain + ":" + keyName, (valuePsiElement != null ? valuePsiElement : yamlKeyValue).getTextOffset());
+        }
+
+    }
+
+    /**
+     * <trans-unit id="1"><source>key</source><target>translation</target></trans-unit>
+     */
+    private static void visitXliffUnits(String domain, XmlTag xmlTag, Map<String, Integer> keys) {
+
+        for(XmlTag subTag: xmlTag.getSubTags()) {
+
+            if(!"trans-unit".equals(subTag.getName())) {
+                visitXliffUnits(domain, subTag, keys);
+                continue;
+            }
+
+            XmlTag source = subTag.findFirstSubTag("source");
+            if(source == null) {
+                continue;
+            }
+
+            String keyName = source.getValue().getTrimmedText();
+            if(keyName.length() == 0) {
+                continue;
+            }
+
+            XmlTag target = subTag.findFirstSubTag("target");
+            keys.put(domain + ":" + keyName, (target != null ? target : source).getTextOffset());
+        }
+
+    }
+
+    /**
+     * "messages.de.yml" is domain "messages"
+     */
+    @Nullable
+    public static String getDomain(VirtualFile virtualFile) {
+
+        String fileName = virtualFile.getNameWithoutExtension();
+        int localePos = fileName.lastIndexOf('.');
+        if(localePos <= 0) {
+            return null;
+        }
+
+        return fileName.substring(0, localePos);
+    }
+
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.keyDescriptor;
+    }
+
+    @Override
+    public DataExternalizer<Integer> getValueExternalizer() {
+        return new DataExternalizer<Integer>() {
+            @Override
+            public void save(DataOutput out, Integer value) throws IOException {
+                out.writeInt(value);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+    }
+
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new FileBasedIndex.InputFilter() {
+            @Override
+            public boolean acceptInput(VirtualFile file) {
+
+                String extension = file.getExtension();
+                if(extension == null || !(extension.equals("yml") || extension.equals("yaml") || extension.equals("xlf") || extension.equals("xliff"))) {
+                    return false;
+                }
+
+                VirtualFile parent = file.getParent();
+                return parent != null && "translations".equals(parent.getName()) && getDomain(file) != null;
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    public int getCacheSize() {
+        return DEFAULT_CACHE_SIZE;
+    }
+
+    /**
+     * translation targets of a key in all translation files of the domain
+     */
+    public static PsiElement[] getTranslationPsiElements(final Project project, String translationKey, String domain) {
+
+        final List<PsiElement> psiElements = new ArrayList<PsiElement>();
+        final PsiManager psiManager = PsiManager.getInstance(project);
+
+        FileBasedIndex.getInstance().processValues(KEY, domain + ":" + translationKey, null, new FileBasedIndex.ValueProcessor<Integer>() {
+            @Override
+            public boolean process(VirtualFile virtualFile, Integer offset) {
+                PsiFile psiFile = psiManager.findFile(virtualFile);
+                if(psiFile != null) {
+                    PsiElement psiElement = psiFile.findElementAt(offset);
+                    if(psiElement != null) {
+                        psiElements.add(psiElement);
+                    }
+                }
+                return true;
+            }
+        }, GlobalSearchScope.allScope(project));
+
+        return psiElements.toArray(new PsiElement[psiElements.size()]);
+    }
+
+}
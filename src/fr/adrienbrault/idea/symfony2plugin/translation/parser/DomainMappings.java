@@ -2,35 +2,53 @@ package fr.adrienbrault.idea.symfony2plugin.translation.parser;
 
 import fr.adrienbrault.idea.symfony2plugin.translation.dict.DomainFileMap;
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
 
-import java.io.File;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 
-public class DomainMappings extends AbstractServiceParser {
+public class DomainMappings extends AbstractServiceParser implements ServiceSnapshotInterface {
 
     protected ArrayList<DomainFileMap> domainFileMaps = new ArrayList<DomainFileMap>();
 
+    private ArrayList<String> arguments;
+
+    /**
+     * /container/services/service[@class="Symfony\Bundle\FrameworkBundle\Translation\Translator"]//call[@method="addResource"]
+     */
     @Override
-    public String getXPathFilter() {
-        return "/container/services/service[@class=\"Symfony\\Bundle\\FrameworkBundle\\Translation\\Translator\"]//call[@method=\"addResource\"]";
+    public void startElement(ServiceXmlElement element) {
+
+        if(!element.getName().equals("call") || !element.isAttribute("method", "addResource")) {
+            return;
+        }
+
+        ServiceXmlElement serviceElement = element.getAncestorOnPath("container", "services", "service");
+
+        if(serviceElement != null && serviceElement.isAttribute("class", "Symfony\\Bundle\\FrameworkBundle\\Translation\\Translator")) {
+            this.arguments = new ArrayList<String>();
+        }
+
     }
 
-    public void parser(File file) {
-        NodeList nodeList = this.parserer(file);
+    @Override
+    public void endElement(ServiceXmlElement element) {
 
-        if(nodeList == null) {
+        if(this.arguments == null) {
             return;
         }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            NodeList arguments = node.getElementsByTagName("argument");
-
-            if(arguments.getLength() == 4) {
-                this.domainFileMaps.add(new DomainFileMap(arguments.item(0).getTextContent(), arguments.item(1).getTextContent(), arguments.item(2).getTextContent(), arguments.item(3).getTextContent()));
+        if(element.getName().equals("argument")) {
+            this.arguments.add(element.getText());
+        } else if(element.getName().equals("call")) {
+            if(this.arguments.size() == 4) {
+                this.domainFileMaps.add(new DomainFileMap(this.arguments.get(0), this.arguments.get(1), this.arguments.get(2), this.arguments.get(3)));
             }
+            this.arguments = null;
         }
 
     }
@@ -39,4 +57,26 @@ public class DomainMappings extends AbstractServiceParser {
         return domainFileMaps;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void writeSnapshot(DataOutput output) throws IOException {
+        output.writeInt(this.domainFileMaps.size());
+        for(DomainFileMap domainFileMap: this.domainFileMaps) {
+            ServiceXmlSnapshotStorage.writeString(output, domainFileMap.getLoader());
+            ServiceXmlSnapshotStorage.writeString(output, domainFileMap.getPath());
+            ServiceXmlSnapshotStorage.writeString(output, domainFileMap.getLanguageKey());
+            ServiceXmlSnapshotStorage.writeString(output, domainFileMap.getDomain());
+        }
+    }
+
+    @Override
+    public void readSnapshot(DataInput input) throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            String loader = ServiceXmlSnapshotStorage.readString(input);
+            String path = ServiceXmlSnapshotStorage.readString(input);
+            String languageKey = ServiceXmlSnapshotStorage.readString(input);
+            this.domainFileMaps.add(new DomainFileMap(loader, path, languageKey, ServiceXmlSnapshotStorage.readString(input)));
+        }
+    }
+
+}
@@ -3,49 +3,95 @@ package fr.adrienbrault.idea.symfony2plugin.translation.parser;
 import java.util.*;
 
 /**
+ * Translation keys by domain and the locales providing them
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class TranslationStringMap {
 
-    private Map<String, String> stringMap;
-    private Map<String, ArrayList> domainMap;
+    /**
+     * domain -> key -> locales
+     */
+    private Map<String, Map<String, Set<String>>> domainMap;
 
     public TranslationStringMap() {
-        this.stringMap = new HashMap<String, String>();
-        this.domainMap = new HashMap<String, ArrayList>();
+        this.domainMap = new HashMap<String, Map<String, Set<String>>>();
     }
 
-    public Map<String, String> getStringMap() {
-        return stringMap;
+    /**
+     * @return keys of a domain in catalogue order
+     */
+    public Collection<String> getDomainMap(String domainKey) {
+
+        if(!domainMap.containsKey(domainKey)) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableSet(domainMap.get(domainKey).keySet());
     }
 
-    public ArrayList<String> getDomainMap(String domainKey) {
+    public boolean hasString(String domain, String stringId) {
+        Map<String, Set<String>> strings = domainMap.get(domain);
+        return strings != null && strings.containsKey(stringId);
+    }
 
-        if(!domainMap.containsKey(domainKey)) {
-            return new ArrayList<String>();
+    /**
+     * @return locales translating the key; empty for unknown keys
+     */
+    public Set<String> getLocales(String domain, String stringId) {
+
+        Map<String, Set<String>> strings = domainMap.get(domain);
+        if(strings == null || !strings.containsKey(stringId)) {
+            return Collections.emptySet();
         }
 
-        return domainMap.get(domainKey);
+        return Collections.unmodifiableSet(strings.get(stringId));
     }
 
     void addString(String domain, String stringId) {
+        this.addString(null, domain, stringId);
+    }
+
+    void addString(String locale, String domain, String stringId) {
 
-        if(!domainMap.containsKey(domain)) {
-            domainMap.put(domain, new ArrayList<String>());
+        Map<String, Set<String>> strings = domainMap.get(domain);
+        if(strings == null) {
+            strings = new LinkedHashMap<String, Set<String>>();
+            domainMap.put(domain, strings);
         }
 
-        stringMap.put(domain + ":" + stringId, stringId);
+        Set<String> locales = strings.get(stringId);
+        if(locales == null) {
+            // most keys are only known in a few locales
+            locales = new HashSet<String>(4);
+            strings.put(stringId, locales);
+        }
 
-        if(!domainMap.get(domain).contains(stringId)) {
-            domainMap.get(domain).add(stringId);
+        if(locale != null) {
+            locales.add(locale);
         }
 
     }
 
+    /**
+     * adds all keys of another map, used to merge catalogues of several files
+     */
+    public void addAll(TranslationStringMap translationStringMap) {
+        for(Map.Entry<String, Map<String, Set<String>>> domain: translationStringMap.domainMap.entrySet()) {
+            for(Map.Entry<String, Set<String>> string: domain.getValue().entrySet()) {
+                if(string.getValue().isEmpty()) {
+                    this.addString(null, domain.getKey(), string.getKey());
+                }
+                for(String locale: string.getValue()) {
+                    this.addString(locale, domain.getKey(), string.getKey());
+                }
+            }
+        }
+    }
+
     public Set<String> getDomainList() {
         return domainMap.keySet();
     }
 
 
 }
-
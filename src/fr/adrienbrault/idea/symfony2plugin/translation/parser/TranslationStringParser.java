@@ -1,12 +1,19 @@
 package fr.adrienbrault.idea.symfony2plugin.translation.parser;
 
+import com.intellij.openapi.util.io.FileUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.PhpArrayReader;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
+ * Reads the dumped catalogues of the translation cache, "catalogue.en.php".
+ *
+ * A file holds one "new MessageCatalogue('en', array('domain' => array('key' => 'translation')))" per locale,
+ * its own and the fallback ones; translations are skipped, only domains, keys and locales are kept.
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class TranslationStringParser {
@@ -15,64 +22,123 @@ public class TranslationStringParser {
         return this.parse(new File(file));
     }
 
+    /**
+     * all catalogues of a directory
+     */
     public TranslationStringMap parsePathMatcher(String path) {
 
-        File file = new File(path);
-        File[] files = file.listFiles();
+        TranslationStringMap translationStringMap = new TranslationStringMap();
+        for(File file: getCatalogueFiles(new File(path))) {
+            TranslationStringMap fileMap = this.parse(file);
+            if(fileMap != null) {
+                translationStringMap.addAll(fileMap);
+            }
+        }
+
+        return translationStringMap;
+    }
 
+    public static List<File> getCatalogueFiles(File directory) {
+
+        List<File> catalogueFiles = new ArrayList<File>();
+
+        File[] files = directory.listFiles();
         if(null == files) {
-            return new TranslationStringMap();
+            return catalogueFiles;
         }
 
         for (final File fileEntry : files) {
-            if (!fileEntry.isDirectory()) {
-                String fileName = fileEntry.getName();
-                if( null != fileName && fileName.endsWith("php")) {
-                    return this.parse(fileEntry);
-                }
+            if (!fileEntry.isDirectory() && fileEntry.getName().endsWith(".php")) {
+                catalogueFiles.add(fileEntry);
             }
         }
 
-        return new TranslationStringMap();
+        return catalogueFiles;
     }
 
     @Nullable
     public TranslationStringMap parse(File file) {
 
-        String string = "";
         try {
-            string = this.fileToString(file.getPath());
+            return parseCatalogue(FileUtil.loadFile(file));
         } catch (IOException e) {
             return null;
         }
 
-        TranslationStringMap string_map = new TranslationStringMap();
+    }
+
+    public static TranslationStringMap parseCatalogue(CharSequence content) {
+        TranslationStringMap translationStringMap = new TranslationStringMap();
+        new CatalogueReader(content).read(translationStringMap);
+        return translationStringMap;
+    }
+
+    protected static class CatalogueReader extends PhpArrayReader {
+
+        public CatalogueReader(CharSequence content) {
+            super(content);
+        }
+
+        public void read(TranslationStringMap translationStringMap) {
+
+            while(this.seek("MessageCatalogue(")) {
 
-        Matcher matcher = Pattern.compile("'([\\w]+)'\\s=>.*?array\\s\\((.*?)\\s\\),", Pattern.MULTILINE).matcher(string);
-        while(matcher.find()){
-            String domain = matcher.group(1);
-            String array_strings = matcher.group(2);
+                Object locale = this.readValue(false);
+                this.skipWhitespace();
+                if(!(locale instanceof String) || this.pos >= this.content.length || this.content[this.pos] != ',') {
+                    continue;
+                }
+                this.pos++;
+
+                char close = this.readArrayOpen();
+                if(close == 0) {
+                    continue;
+                }
+
+                // domain => array(key => translation)
+                while(!this.readArrayClose(close)) {
 
-            Matcher match_strings = Pattern.compile("\\s'(.*?)'\\s=>\\s'.*?',\\s", Pattern.MULTILINE).matcher(array_strings);
-            while(match_strings.find()){
-                string_map.addString(domain, match_strings.group(1));
+                    Object domain = this.readValue(false);
+                    if(!this.readArrow()) {
+                        break;
+                    }
+
+                    char domainClose = this.readArrayOpen();
+                    if(domainClose == 0) {
+                        this.readValue(true);
+                    } else {
+                        this.readStrings((String) locale, String.valueOf(domain), domainClose, translationStringMap);
+                    }
+
+                    if(!this.readSeparator(close)) {
+                        break;
+                    }
+                }
             }
 
         }
 
-        return string_map;
-    }
+        protected void readStrings(String locale, String domain, char close, TranslationStringMap translationStringMap) {
 
-    private String fileToString(String filename) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
-        StringBuilder builder = new StringBuilder();
-        String line;
+            while(!this.readArrayClose(close)) {
+
+                Object stringId = this.readValue(false);
+                if(!this.readArrow()) {
+                    break;
+                }
+
+                this.readValue(true);
+                if(stringId != null) {
+                    translationStringMap.addString(locale, domain, String.valueOf(stringId));
+                }
+
+                if(!this.readSeparator(close)) {
+                    break;
+                }
+            }
 
-        while((line = reader.readLine()) != null){
-            builder.append(line);
         }
 
-        return builder.toString();
     }
 
 }
@@ -16,6 +16,7 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.TwigHelper;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceSetting;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigPath;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateIndex;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -180,6 +181,7 @@ public class TwigSettingsForm implements Configurable {
         }
 
         getSettings().twigNamespaces = twigPaths;
+        TwigTemplateIndex.getInstance(this.project).setCacheInvalid();
         this.changed = false;
     }
 
@@ -0,0 +1,264 @@
+package fr.adrienbrault.idea.symfony2plugin.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Single pass tokenizer for php array literals of generated files, like var_export output in the symfony cache.
+ *
+ * No backtracking, every char is visited once; values which are not needed can be skipped without materializing them.
+ */
+public class PhpArrayReader {
+
+    protected final char[] content;
+    protected int pos;
+
+    public PhpArrayReader(CharSequence content) {
+        this.content = content.toString().toCharArray();
+    }
+
+    /**
+     * move behind next occurrence of given text
+     */
+    protected boolean seek(String text) {
+
+        for(int i = this.pos; i + text.length() <= this.content.length; i++) {
+            if(this.content[i] == text.charAt(0) && this.startsWith(i, text)) {
+                this.pos = i + text.length();
+                return true;
+            }
+        }
+
+        this.pos = this.content.length;
+        return false;
+    }
+
+    /**
+     * @param skip only move behind the value
+     * @return String, null for php constants (NULL) or Map with keys as string for arrays; list items get their index as key
+     */
+    @Nullable
+    protected Object readValue(boolean skip) {
+
+        this.skipWhitespace();
+        if(this.pos >= this.content.length) {
+            return null;
+        }
+
+        char c = this.content[this.pos];
+        if(c == '\'' || c == '"') {
+            return this.readString(c, skip);
+        }
+
+        char close = this.readArrayOpen();
+        if(close != 0) {
+            return this.readArray(close, skip);
+        }
+
+        return this.readConstant(skip);
+    }
+
+    @Nullable
+    protected Map<String, Object> readArray(char close, boolean skip) {
+
+        Map<String, Object> values = skip ? null : new LinkedHashMap<String, Object>();
+        int index = 0;
+
+        while(!this.readArrayClose(close)) {
+
+            Object key = this.readValue(skip);
+            if(this.readArrow()) {
+                Object value = this.readValue(skip);
+                if(values != null) {
+                    values.put(String.valueOf(key), value);
+                }
+            } else if(values != null) {
+                values.put(String.valueOf(index), key);
+            }
+
+            index++;
+            if(!this.readSeparator(close)) {
+                break;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * "array (" or "["
+     *
+     * @return the matching close char or 0 if there is no array
+     */
+    protected char readArrayOpen() {
+
+        this.skipWhitespace();
+        if(this.pos >= this.content.length) {
+            return 0;
+        }
+
+        if(this.content[this.pos] == '[') {
+            this.pos++;
+            return ']';
+        }
+
+        int start = this.pos;
+        if(this.startsWithIgnoreCase(this.pos, "array")) {
+            this.pos += "array".length();
+            this.skipWhitespace();
+            if(this.pos < this.content.length && this.content[this.pos] == '(') {
+                this.pos++;
+                return ')';
+            }
+        }
+
+        this.pos = start;
+        return 0;
+    }
+
+    protected boolean readArrayClose(char close) {
+
+        this.skipWhitespace();
+        if(this.pos >= this.content.length) {
+            return true;
+        }
+
+        if(this.content[this.pos] == close) {
+            this.pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    protected boolean readArrow() {
+
+        this.skipWhitespace();
+        if(this.startsWith(this.pos, "=>")) {
+            this.pos += 2;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return false if the array can not be continued; not a php array we understand, so stop here instead of guessing
+     */
+    protected boolean readSeparator(char close) {
+
+        this.skipWhitespace();
+        if(this.pos < this.content.length && this.content[this.pos] == ',') {
+            this.pos++;
+            return true;
+        }
+
+        if(this.pos < this.content.length && this.content[this.pos] == close) {
+            return true;
+        }
+
+        this.pos = this.content.length;
+        return false;
+    }
+
+    @Nullable
+    protected String readString(char quote, boolean skip) {
+
+        int start = ++this.pos;
+        boolean escaped = false;
+
+        while(this.pos < this.content.length) {
+            char c = this.content[this.pos];
+            if(c == quote) {
+                break;
+            }
+
+            if(c == '\\') {
+                escaped = true;
+                this.pos++;
+            }
+
+            this.pos++;
+        }
+
+        int end = Math.min(this.pos, this.content.length);
+        this.pos = end + 1;
+
+        if(skip) {
+            return null;
+        }
+
+        if(!escaped) {
+            return new String(this.content, start, end - start);
+        }
+
+        // single quoted strings only know \\ and \'; keep all other escapes as they are
+        StringBuilder value = new StringBuilder(end - start);
+        for(int i = start; i < end; i++) {
+            char c = this.content[i];
+            if(c == '\\' && i + 1 < end && (this.content[i + 1] == '\\' || this.content[i + 1] == quote)) {
+                c = this.content[++i];
+            }
+            value.append(c);
+        }
+
+        return value.toString();
+    }
+
+    @Nullable
+    protected String readConstant(boolean skip) {
+
+        int start = this.pos;
+        while(this.pos < this.content.length) {
+            char c = this.content[this.pos];
+            if(c == ',' || c == ')' || c == ']' || c == '=' || Character.isWhitespace(c)) {
+                break;
+            }
+            this.pos++;
+        }
+
+        if(skip) {
+            return null;
+        }
+
+        String value = new String(this.content, start, this.pos - start);
+        return "NULL".equalsIgnoreCase(value) ? null : value;
+    }
+
+    protected void skipWhitespace() {
+        while(this.pos < this.content.length && Character.isWhitespace(this.content[this.pos])) {
+            this.pos++;
+        }
+    }
+
+    protected boolean startsWith(int offset, String value) {
+        if(offset + value.length() > this.content.length) {
+            return false;
+        }
+
+        for(int i = 0; i < value.length(); i++) {
+            if(this.content[offset + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected boolean startsWithIgnoreCase(int offset, String value) {
+        if(offset + value.length() > this.content.length) {
+            return false;
+        }
+
+        for(int i = 0; i < value.length(); i++) {
+            if(Character.toLowerCase(this.content[offset + i]) != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
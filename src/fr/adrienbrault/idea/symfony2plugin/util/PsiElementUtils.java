@@ -41,6 +41,14 @@ public class PsiElementUtils {
         return value.replace("IntellijIdeaRulezzz", "").replace("IntellijIdeaRulezzz ", "").trim();
     }
 
+    /**
+     * Text in front of the completion cursor, which is marked with "IntellijIdeaRulezzz"
+     */
+    public static String getTextBeforeCaret(String value) {
+        int caret = value.indexOf("IntellijIdeaRulezzz");
+        return caret < 0 ? value : value.substring(0, caret);
+    }
+
     public static String getMethodParameterAt(ParameterList parameterList, int index) {
         PsiElement[] parameters = parameterList.getParameters();
 
@@ -9,7 +9,6 @@ import com.intellij.openapi.roots.ContentIterator;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ProcessingContext;
-import com.jetbrains.php.PhpIndex;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.BundleFile;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
@@ -33,11 +32,9 @@ public class SymfonyBundleFileCompletionProvider extends CompletionProvider<Comp
             return;
         }
 
-        PhpIndex phpIndex = PhpIndex.getInstance(completionParameters.getPosition().getProject());
-
         ProjectFileIndex fileIndex = ProjectFileIndex.SERVICE.getInstance(completionParameters.getPosition().getProject());
 
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(phpIndex);
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(completionParameters.getPosition().getProject());
         ArrayList<BundleFile> bundleFiles = new ArrayList<BundleFile>();
 
         for(SymfonyBundle symfonyBundle : symfonyBundleUtil.getBundles()) {
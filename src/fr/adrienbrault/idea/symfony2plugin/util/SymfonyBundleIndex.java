@@ -0,0 +1,128 @@
+package fr.adrienbrault.idea.symfony2plugin.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * All bundle classes of a project, cached until the php structure changes.
+ *
+ * Besides the name lookup bundles are keyed by namespace and directory path,
+ * so the bundle of a class or file is found by walking up its namespace or parent directories
+ * instead of asking every bundle.
+ */
+public class SymfonyBundleIndex {
+
+    private static final Key<CachedValue<SymfonyBundleIndex>> BUNDLE_INDEX = new Key<CachedValue<SymfonyBundleIndex>>("SYMFONY2_BUNDLE_INDEX");
+
+    private final Map<String, SymfonyBundle> bundles;
+    private final Map<String, SymfonyBundle> namespaceBundles;
+    private final Map<String, SymfonyBundle> directoryBundles;
+
+    public SymfonyBundleIndex(Collection<PhpClass> phpClasses) {
+
+        Map<String, SymfonyBundle> bundles = new HashMap<String, SymfonyBundle>();
+        this.namespaceBundles = new HashMap<String, SymfonyBundle>();
+        this.directoryBundles = new HashMap<String, SymfonyBundle>();
+
+        for(PhpClass phpClass : phpClasses) {
+            SymfonyBundle bundle = new SymfonyBundle(phpClass);
+            bundles.put(bundle.getName(), bundle);
+            this.namespaceBundles.put(normalizeNamespace(bundle.getNamespaceName()), bundle);
+
+            VirtualFile directory = bundle.getVirtualDirectory();
+            if(directory != null) {
+                this.directoryBundles.put(directory.getPath(), bundle);
+            }
+        }
+
+        this.bundles = Collections.unmodifiableMap(bundles);
+    }
+
+    public Collection<SymfonyBundle> getBundles() {
+        return this.bundles.values();
+    }
+
+    @Nullable
+    public SymfonyBundle getBundle(String bundleName) {
+        return this.bundles.get(bundleName);
+    }
+
+    /**
+     * bundle with the nearest namespace of the class; "\Foo\BarBundle\Controller" is in "\Foo\BarBundle"
+     */
+    @Nullable
+    public SymfonyBundle getContainingBundle(PhpClass phpClass) {
+
+        String namespace = normalizeNamespace(phpClass.getNamespaceName());
+        while(true) {
+            SymfonyBundle bundle = this.namespaceBundles.get(namespace);
+            if(bundle != null) {
+                return bundle;
+            }
+
+            int pos = namespace.lastIndexOf('\\');
+            if(pos < 0) {
+                return null;
+            }
+
+            namespace = namespace.substring(0, pos);
+        }
+    }
+
+    /**
+     * bundle of the nearest parent directory containing a bundle class
+     */
+    @Nullable
+    public SymfonyBundle getContainingBundle(VirtualFile virtualFile) {
+
+        for(VirtualFile directory = virtualFile; directory != null; directory = directory.getParent()) {
+            SymfonyBundle bundle = this.directoryBundles.get(directory.getPath());
+            if(bundle != null) {
+                return bundle;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * "\Foo\BarBundle\" and "Foo\BarBundle" are the same namespace
+     */
+    protected static String normalizeNamespace(String namespace) {
+
+        if(namespace.startsWith("\\")) {
+            namespace = namespace.substring(1);
+        }
+
+        if(namespace.endsWith("\\")) {
+            namespace = namespace.substring(0, namespace.length() - 1);
+        }
+
+        return namespace;
+    }
+
+    public static SymfonyBundleIndex getInstance(final Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, BUNDLE_INDEX, new CachedValueProvider<SymfonyBundleIndex>() {
+            @Override
+            public Result<SymfonyBundleIndex> compute() {
+                Collection<PhpClass> phpClasses = PhpIndex.getInstance(project).getAllSubclasses("\\Symfony\\Component\\HttpKernel\\Bundle\\Bundle");
+                return Result.create(new SymfonyBundleIndex(phpClasses), PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+            }
+        }, false);
+    }
+
+}
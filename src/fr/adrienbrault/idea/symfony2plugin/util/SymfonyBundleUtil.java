@@ -1,52 +1,37 @@
 package fr.adrienbrault.idea.symfony2plugin.util;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
-import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
 
 import java.util.Collection;
-import java.util.HashMap;
 
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Bundle lookups of a project; backed by the cached SymfonyBundleIndex, so creating it is cheap
+ */
 public class SymfonyBundleUtil {
 
-    protected PhpIndex phpIndex;
-    protected HashMap<String, SymfonyBundle> symfonyBundles;
-
-    public SymfonyBundleUtil(PhpIndex phpIndex) {
-        this.phpIndex = phpIndex;
-        this.loadBundles();
-    }
+    protected SymfonyBundleIndex bundleIndex;
 
     public SymfonyBundleUtil(Project project) {
-        this(PhpIndex.getInstance(project));
-    }
-
-    protected void loadBundles() {
-
-        this.symfonyBundles = new HashMap<String, SymfonyBundle>();
-        Collection<PhpClass> phpClasses = this.phpIndex.getAllSubclasses("\\Symfony\\Component\\HttpKernel\\Bundle\\Bundle");
-
-        for (PhpClass phpClass : phpClasses) {
-            this.symfonyBundles.put(phpClass.getName(), new SymfonyBundle(phpClass));
-        }
-
+        this.bundleIndex = SymfonyBundleIndex.getInstance(project);
     }
 
     public Collection<SymfonyBundle> getBundles() {
-        return this.symfonyBundles.values();
+        return this.bundleIndex.getBundles();
     }
 
     @Nullable
     public SymfonyBundle getBundle(String bundleName) {
-        return this.symfonyBundles.get(bundleName);
+        return this.bundleIndex.getBundle(bundleName);
     }
 
     public boolean bundleExists(String bundleName) {
-        return this.symfonyBundles.get(bundleName) != null;
+        return this.bundleIndex.getBundle(bundleName) != null;
     }
 
     @Nullable
@@ -61,39 +46,24 @@ public class SymfonyBundleUtil {
             return null;
         }
 
-        String bundleName = bundleShortcutName.substring(1, stripedBundlePos);
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.getName().equals(bundleName)) {
-                return bundle;
-            }
-        }
-
-        return null;
+        return this.getBundle(bundleShortcutName.substring(1, stripedBundlePos));
     }
 
 
     @Nullable
     public SymfonyBundle getContainingBundle(PhpClass phpClass) {
-
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.isInBundle(phpClass)) {
-                return bundle;
-            }
-        }
-
-        return null;
+        return this.bundleIndex.getContainingBundle(phpClass);
     }
 
     @Nullable
     public SymfonyBundle getContainingBundle(PsiFile psiFile) {
 
-        for(SymfonyBundle bundle : this.getBundles()) {
-            if(bundle.isInBundle(psiFile)) {
-                return bundle;
-            }
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if(virtualFile == null) {
+            return null;
         }
 
-        return null;
+        return this.bundleIndex.getContainingBundle(virtualFile);
     }
 
 }
@@ -0,0 +1,41 @@
+package fr.adrienbrault.idea.symfony2plugin.util.controller;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup of controller actions by shortcut name, "AcmeBundle:Foo:bar"
+ */
+public class ControllerActionIndex {
+
+    private final List<ControllerAction> actions;
+    private final Map<String, ControllerAction> shortcutActions;
+
+    public ControllerActionIndex(Collection<ControllerAction> actions) {
+        this.actions = Collections.unmodifiableList(new ArrayList<ControllerAction>(actions));
+        this.shortcutActions = new HashMap<String, ControllerAction>();
+
+        // first action wins on duplicate names, as on a scan
+        for(ControllerAction action: this.actions) {
+            if(!this.shortcutActions.containsKey(action.getShortcutName())) {
+                this.shortcutActions.put(action.getShortcutName(), action);
+            }
+        }
+    }
+
+    public List<ControllerAction> getActions() {
+        return actions;
+    }
+
+    @Nullable
+    public ControllerAction getAction(String shortcutName) {
+        return this.shortcutActions.get(shortcutName);
+    }
+
+}
@@ -2,14 +2,21 @@ package fr.adrienbrault.idea.symfony2plugin.util.controller;
 
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.php.lang.psi.elements.PhpNamedElement;
-import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
 import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteIndex;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteIndexFactory;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
@@ -18,11 +25,16 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ControllerIndex {
 
+    private static final Key<CachedValue<ControllerActionIndex>> ACTION_INDEX = new Key<CachedValue<ControllerActionIndex>>("SYMFONY2_CONTROLLER_ACTION_INDEX");
+    private static final Key<CachedValue<List<ControllerAction>>> SERVICE_ACTIONS = new Key<CachedValue<List<ControllerAction>>>("SYMFONY2_CONTROLLER_SERVICE_ACTIONS");
+
     Project project;
     PhpIndex phpIndex;
 
@@ -32,9 +44,25 @@ public class ControllerIndex {
     }
 
     public ArrayList<ControllerAction> getAction() {
+        return new ArrayList<ControllerAction>(this.getActionIndex().getActions());
+    }
+
+    /**
+     * bundle controller actions, cached until the php structure changes
+     */
+    public ControllerActionIndex getActionIndex() {
+        return CachedValuesManager.getManager(this.project).getCachedValue(this.project, ACTION_INDEX, new CachedValueProvider<ControllerActionIndex>() {
+            @Override
+            public Result<ControllerActionIndex> compute() {
+                return Result.create(new ControllerActionIndex(collectActions()), PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+            }
+        }, false);
+    }
+
+    private ArrayList<ControllerAction> collectActions() {
 
         ArrayList<ControllerAction> actions = new ArrayList<ControllerAction>();
-        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(phpIndex);
+        SymfonyBundleUtil symfonyBundleUtil = new SymfonyBundleUtil(this.project);
 
         Collection<PhpClass> controllerClasses = phpIndex.getAllSubclasses("\\Symfony\\Bundle\\FrameworkBundle\\Controller\\Controller");
         for(PhpClass controllerClass : controllerClasses) {
@@ -56,7 +84,7 @@ public class ControllerIndex {
         String serviceId = shortcutName.substring(0, shortcutName.lastIndexOf(":"));
         String methodName = shortcutName.substring(shortcutName.lastIndexOf(":") + 1);
 
-        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(this.project, XmlServiceParser.class).getServiceMap();
+        ServiceMap serviceMap = ServiceIndex.getServiceMap(this.project);
 
         if(serviceMap.getMap().containsKey(serviceId))  {
             Collection<? extends PhpNamedElement> methodCalls = this.phpIndex.getBySignature("#M#C" + serviceMap.getMap().get(serviceId) + "." + methodName, null, 0);
@@ -74,13 +102,7 @@ public class ControllerIndex {
 
     @Nullable
     public ControllerAction getControllerAction(String shortcutName) {
-        for(ControllerAction controllerAction: this.getAction()) {
-            if(controllerAction.getShortcutName().equals(shortcutName)) {
-                return controllerAction;
-            }
-        }
-
-        return null;
+        return this.getActionIndex().getAction(shortcutName);
     }
 
     private ArrayList<ControllerAction> getActionMethods(SymfonyBundleUtil symfonyBundleUtil, PhpClass controllerClass) {
@@ -112,16 +134,42 @@ public class ControllerIndex {
     }
 
     public ArrayList<ControllerAction> getServiceActionMethods(Project project) {
+        return new ArrayList<ControllerAction>(this.getServiceActions());
+    }
+
+    /**
+     * public methods of all services used as controller in routes;
+     * cached until the url generator, the container or the php structure changes
+     */
+    public List<ControllerAction> getServiceActions() {
+
+        // both factories check their files on access and swap in a new snapshot with a new modification count if they changed
+        RouteIndexFactory.getRouteIndex(this.project);
+        ServiceXmlParserFactory.getInstance(this.project, XmlServiceParser.class);
+
+        return CachedValuesManager.getManager(this.project).getCachedValue(this.project, SERVICE_ACTIONS, new CachedValueProvider<List<ControllerAction>>() {
+            @Override
+            public Result<List<ControllerAction>> compute() {
+                return Result.create(
+                    Collections.unmodifiableList(collectServiceActions(RouteIndexFactory.getRouteIndex(project), ServiceIndex.getServiceMap(project))),
+                    RouteIndexFactory.getInstance(project),
+                    ServiceXmlParserFactory.getInstance(project),
+                    ServiceIndex.getInstance(project),
+                    PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT
+                );
+            }
+        }, false);
+    }
+
+    private ArrayList<ControllerAction> collectServiceActions(RouteIndex routeIndex, ServiceMap serviceMap) {
 
         ArrayList<ControllerAction> actions = new ArrayList<ControllerAction>();
 
-        Symfony2ProjectComponent symfony2ProjectComponent = project.getComponent(Symfony2ProjectComponent.class);
-        Map<String,Route> routes = symfony2ProjectComponent.getRoutes();
+        Map<String,Route> routes = routeIndex.getRoutes();
         if(routes.size() == 0) {
             return actions;
         }
 
-        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap();
         if(serviceMap.getMap().size() == 0) {
             return actions;
         }
@@ -158,13 +206,12 @@ public class ControllerIndex {
 
     @Nullable
     public Method resolveShortcutName(String controllerName) {
-        ControllerIndex controllerIndex = new ControllerIndex(project);
-        ControllerAction controllerAction = controllerIndex.getControllerAction(controllerName);
+        ControllerAction controllerAction = this.getControllerAction(controllerName);
         if(controllerAction != null) {
             return controllerAction.getMethod();
         }
 
-        controllerAction = controllerIndex.getControllerActionOnService(controllerName);
+        controllerAction = this.getControllerActionOnService(controllerName);
         if(controllerAction != null) {
             return controllerAction.getMethod();
         }
@@ -176,11 +223,11 @@ public class ControllerIndex {
         ArrayList<LookupElement> lookupElements = new ArrayList<LookupElement>();
 
         ControllerIndex controllerIndex = new ControllerIndex(project);
-        for(ControllerAction controllerAction: controllerIndex.getAction()) {
+        for(ControllerAction controllerAction: controllerIndex.getActionIndex().getActions()) {
             lookupElements.add(new ControllerActionLookupElement(controllerAction));
         }
 
-        for(ControllerAction controllerAction: controllerIndex.getServiceActionMethods(project)) {
+        for(ControllerAction controllerAction: controllerIndex.getServiceActions()) {
             lookupElements.add(new ControllerActionLookupElement(controllerAction));
         }
 
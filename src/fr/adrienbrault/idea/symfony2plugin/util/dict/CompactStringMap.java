@@ -0,0 +1,212 @@
+package fr.adrienbrault.idea.symfony2plugin.util.dict;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only string map for large parsed data sets.
+ *
+ * Keys live in a single open addressing table (linear probing), values are deduplicated
+ * into a shared table and referenced by index, so a class name used by thousands of services is stored once.
+ * A view restricted to a subset of keys can be created with a BitSet over the slots.
+ */
+public class CompactStringMap extends AbstractMap<String, String> {
+
+    private final String[] keys;
+    private final int[] values;
+    private final String[] valueTable;
+    private final BitSet slots;
+
+    public CompactStringMap(Map<String, String> map) {
+
+        int capacity = 4;
+        while(capacity < map.size() * 2) {
+            capacity <<= 1;
+        }
+
+        this.keys = new String[capacity];
+        this.values = new int[capacity];
+        this.slots = new BitSet(capacity);
+
+        Map<String, Integer> localValueIndex = new HashMap<String, Integer>();
+        for(Map.Entry<String, String> entry: map.entrySet()) {
+            if(entry.getKey() == null) {
+                continue;
+            }
+
+            int slot = this.probe(entry.getKey());
+            this.keys[slot] = entry.getKey();
+            this.slots.set(slot);
+
+            String value = entry.getValue();
+            if(value == null) {
+                this.values[slot] = -1;
+                continue;
+            }
+
+            Integer index = localValueIndex.get(value);
+            if(index == null) {
+                index = localValueIndex.size();
+                localValueIndex.put(value, index);
+            }
+            this.values[slot] = index;
+        }
+
+        this.valueTable = new String[localValueIndex.size()];
+        for(Map.Entry<String, Integer> entry: localValueIndex.entrySet()) {
+            this.valueTable[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    private int probe(String key) {
+        int mask = this.keys.length - 1;
+        int hash = key.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while(this.keys[slot] != null && !this.keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * @return slot of key or -1
+     */
+    public int indexOf(@Nullable Object key) {
+        if(!(key instanceof String)) {
+            return -1;
+        }
+
+        int slot = this.probe((String) key);
+        return this.keys[slot] == null ? -1 : slot;
+    }
+
+    public String getKeyAt(int slot) {
+        return this.keys[slot];
+    }
+
+    @Nullable
+    public String getValueAt(int slot) {
+        int index = this.values[slot];
+        return index < 0 ? null : this.valueTable[index];
+    }
+
+    /**
+     * Read-only map of the keys on the given slots
+     */
+    public Map<String, String> view(BitSet slots) {
+        return new SlotMap(this, slots);
+    }
+
+    @Override
+    public String get(Object key) {
+        int slot = this.indexOf(key);
+        return slot < 0 ? null : this.getValueAt(slot);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.slots.cardinality();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new SlotEntrySet(this, this.slots);
+    }
+
+    private static class SlotMap extends AbstractMap<String, String> {
+
+        private final CompactStringMap map;
+        private final BitSet slots;
+        private final int size;
+
+        private SlotMap(CompactStringMap map, BitSet slots) {
+            this.map = map;
+            this.slots = slots;
+            this.size = slots.cardinality();
+        }
+
+        @Override
+        public String get(Object key) {
+            int slot = this.map.indexOf(key);
+            return slot < 0 || !this.slots.get(slot) ? null : this.map.getValueAt(slot);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int slot = this.map.indexOf(key);
+            return slot >= 0 && this.slots.get(slot);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new SlotEntrySet(this.map, this.slots);
+        }
+
+    }
+
+    private static class SlotEntrySet extends AbstractSet<Entry<String, String>> {
+
+        private final CompactStringMap map;
+        private final BitSet slots;
+
+        private SlotEntrySet(CompactStringMap map, BitSet slots) {
+            this.map = map;
+            this.slots = slots;
+        }
+
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+            return new Iterator<Entry<String, String>>() {
+
+                private int slot = slots.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return this.slot >= 0;
+                }
+
+                @Override
+                public Entry<String, String> next() {
+                    if(this.slot < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Entry<String, String> entry = new SimpleImmutableEntry<String, String>(map.getKeyAt(this.slot), map.getValueAt(this.slot));
+                    this.slot = slots.nextSetBit(this.slot + 1);
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.slots.cardinality();
+        }
+
+    }
+
+}
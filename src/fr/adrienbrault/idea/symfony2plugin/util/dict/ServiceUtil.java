@@ -5,7 +5,7 @@ import com.intellij.psi.PsiElement;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
-import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.Nullable;
@@ -41,7 +41,7 @@ public class ServiceUtil {
     @Nullable
     public static PhpClass getResolvedClassDefinition(Project project, String className) {
 
-        String serviceClass = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap().getMap().get(className);
+        String serviceClass = ServiceIndex.getServiceMap(project).getMap().get(className);
         if (null != serviceClass) {
             PsiElement[] psiElements = PhpElementsUtil.getClassInterfacePsiElements(project, serviceClass);
             for(PsiElement psiElement: psiElements) {
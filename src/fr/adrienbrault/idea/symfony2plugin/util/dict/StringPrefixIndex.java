@@ -0,0 +1,83 @@
+package fr.adrienbrault.idea.symfony2plugin.util.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable sorted array of strings for case insensitive prefix lookups.
+ *
+ * A prefix selects one continuous range, which start is found with a binary search,
+ * so completion only needs to touch the matching names.
+ */
+public class StringPrefixIndex {
+
+    private final String[] keys;
+    private final String[] values;
+
+    public StringPrefixIndex(Collection<String> values) {
+
+        final String[] unsorted = values.toArray(new String[values.size()]);
+        final String[] lowerCase = new String[unsorted.length];
+        Integer[] order = new Integer[unsorted.length];
+        for(int i = 0; i < unsorted.length; i++) {
+            lowerCase[i] = unsorted[i].toLowerCase();
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer index, Integer index2) {
+                return lowerCase[index].compareTo(lowerCase[index2]);
+            }
+        });
+
+        this.keys = new String[unsorted.length];
+        this.values = new String[unsorted.length];
+        for(int i = 0; i < order.length; i++) {
+            this.keys[i] = lowerCase[order[i]];
+            this.values[i] = unsorted[order[i]];
+        }
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return all values starting with prefix ignoring case, in sorted order
+     */
+    public List<String> getByPrefix(String prefix) {
+
+        prefix = prefix.toLowerCase();
+
+        int start = lowerBound(prefix);
+        List<String> result = new ArrayList<String>();
+        for(int i = start; i < this.keys.length && this.keys[i].startsWith(prefix); i++) {
+            result.add(this.values[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * first index with a key not less than given one
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = this.keys.length;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(this.keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+}
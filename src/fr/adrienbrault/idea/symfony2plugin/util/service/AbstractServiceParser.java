@@ -1,51 +1,26 @@
 package fr.adrienbrault.idea.symfony2plugin.util.service;
 
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceParserInterface;
-import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.*;
 import java.io.File;
-import java.io.IOException;
-
-abstract public class AbstractServiceParser  implements ServiceParserInterface {
-
-    @Nullable
-    protected NodeList parserer(File file) {
+import java.util.Collections;
 
-        Document document;
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+/**
+ * Parsers only receive element events, so any number of them can share one pass over a container file
+ *
+ * @see ServiceXmlReader
+ */
+abstract public class AbstractServiceParser implements ServiceParserInterface {
 
-        try {
-            DocumentBuilder documentBuilder = dbFactory.newDocumentBuilder();
-            document = documentBuilder.parse(file);
-        } catch (ParserConfigurationException e) {
-            return null;
-        } catch (SAXException e) {
-            return null;
-        } catch (IOException e) {
-            return null;
-        }
+    public void parser(File file) {
+        ServiceXmlReader.read(file, Collections.singletonList(this));
+    }
 
-        if(document == null) {
-            return null;
-        }
+    public void startElement(ServiceXmlElement element) {
+    }
 
-        Object result;
-        try {
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression xPathExpr = xpath.compile(this.getXPathFilter());
-            result = xPathExpr.evaluate(document, XPathConstants.NODESET);
-        } catch (XPathExpressionException e) {
-            return null;
-        }
+    public void endElement(ServiceXmlElement element) {
+    }
 
-        return (NodeList) result;
+    public void endDocument() {
     }
 
 }
@@ -3,6 +3,8 @@ package fr.adrienbrault.idea.symfony2plugin.util.service;
 import java.io.File;
 
 public interface ServiceParserInterface {
-    public String getXPathFilter();
     public void parser(File file);
+    public void startElement(ServiceXmlElement element);
+    public void endElement(ServiceXmlElement element);
+    public void endDocument();
 }
@@ -0,0 +1,13 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Parsers which can persist their result, so a unchanged container is not parsed again on next startup
+ */
+public interface ServiceSnapshotInterface {
+    public void writeSnapshot(DataOutput output) throws IOException;
+    public void readSnapshot(DataInput input) throws IOException;
+}
@@ -0,0 +1,141 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lightweight element of a container xml pass; only the current element path is alive at any time
+ */
+public class ServiceXmlElement {
+
+    private String name;
+    private Map<String, String> attributes = new HashMap<String, String>();
+    private ServiceXmlElement parent;
+    private int depth;
+    private StringBuilder text;
+    private boolean hasChildren = false;
+
+    public ServiceXmlElement(String name, @Nullable ServiceXmlElement parent) {
+        this.name = name;
+        this.parent = parent;
+        this.depth = parent == null ? 0 : parent.getDepth() + 1;
+
+        if(parent != null) {
+            parent.childStarted();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Nullable
+    public ServiceXmlElement getParent() {
+        return parent;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean hasAttribute(String attributeName) {
+        return this.attributes.containsKey(attributeName);
+    }
+
+    @Nullable
+    public String getAttribute(String attributeName) {
+        return this.attributes.get(attributeName);
+    }
+
+    public boolean isAttribute(String attributeName, String value) {
+        return value.equals(this.attributes.get(attributeName));
+    }
+
+    public ServiceXmlElement setAttribute(String attributeName, String value) {
+        this.attributes.put(attributeName, value);
+        return this;
+    }
+
+    /**
+     * Text content of an element without child elements, like a parameter value; only complete on endElement.
+     * Elements with children keep no text, so whitespace between them is not collected along the whole path.
+     */
+    public String getText() {
+        return text == null ? "" : text.toString();
+    }
+
+    public ServiceXmlElement appendText(String text) {
+        if(this.hasChildren) {
+            return this;
+        }
+
+        if(this.text == null) {
+            this.text = new StringBuilder(text.length());
+        }
+
+        this.text.append(text);
+        return this;
+    }
+
+    private void childStarted() {
+        this.hasChildren = true;
+        this.text = null;
+    }
+
+    /**
+     * Absolute path match; isPath("container", "services", "service") equals xpath "/container/services/service"
+     */
+    public boolean isPath(String... names) {
+
+        if(this.depth != names.length - 1) {
+            return false;
+        }
+
+        ServiceXmlElement element = this;
+        for(int i = names.length - 1; i >= 0; i--) {
+            if(!element.getName().equals(names[i])) {
+                return false;
+            }
+            element = element.getParent();
+        }
+
+        return true;
+    }
+
+    /**
+     * Nearest ancestor with given name, "//" xpath axis
+     */
+    @Nullable
+    public ServiceXmlElement getAncestor(String name) {
+        ServiceXmlElement element = this.parent;
+        while(element != null) {
+            if(element.getName().equals(name)) {
+                return element;
+            }
+            element = element.getParent();
+        }
+
+        return null;
+    }
+
+    /**
+     * Ancestor on given absolute path; getAncestorOnPath("container", "services", "service") for "/container/services/service//"
+     */
+    @Nullable
+    public ServiceXmlElement getAncestorOnPath(String... names) {
+
+        ServiceXmlElement element = this.parent;
+        while(element != null && element.getDepth() >= names.length) {
+            element = element.getParent();
+        }
+
+        if(element == null || element.getDepth() != names.length - 1 || !element.isPath(names)) {
+            return null;
+        }
+
+        return element;
+    }
+
+}
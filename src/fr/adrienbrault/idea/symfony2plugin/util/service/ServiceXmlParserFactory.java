@@ -1,47 +1,117 @@
 package fr.adrienbrault.idea.symfony2plugin.util.service;
 
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.dic.ContainerFile;
+import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlEventParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.component.EntityNamesServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.form.dict.FormExtensionServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.form.dict.FormTypeServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigPathServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.DomainMappings;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class ServiceXmlParserFactory {
+/**
+ * All registered parsers of a project are filled in one pass per container file.
+ *
+ * A changed container is parsed on a pooled thread; until the new snapshot is swapped in
+ * callers get the previous one, or an empty parser if there is none yet, and never wait on the parse.
+ *
+ * Project service; parsed data is released with the project.
+ *
+ * Every build is also written to a binary snapshot in the IDE system directory,
+ * which is loaded on project open, so a unchanged container is not parsed again after a restart.
+ *
+ * As ModificationTracker it can be a dependency of cached values derived from the container.
+ */
+public class ServiceXmlParserFactory implements Disposable, ModificationTracker {
 
-    protected static Map<Project, Map<Class, ServiceXmlParserFactory>> instance = new HashMap<Project, Map<Class, ServiceXmlParserFactory>>();
+    /**
+     * known parsers are always build together, so the first request on a changed container parses it only once
+     */
+    @SuppressWarnings("unchecked")
+    protected static Class<? extends ServiceParserInterface>[] DEFAULT_PARSERS = new Class[] {
+        XmlServiceParser.class,
+        XmlTagParser.class,
+        XmlEventParser.class,
+        ParameterServiceParser.class,
+        EntityNamesServiceParser.class,
+        FormTypeServiceParser.class,
+        FormExtensionServiceParser.class,
+        DomainMappings.class,
+        TwigPathServiceParser.class,
+    };
+
+    protected static final long[] MISSING_FILE_STAMP = new long[] {-1, -1};
 
     protected Project project;
-    protected ServiceParserInterface serviceParserInstance;
 
-    protected HashMap<String, Long> serviceFiles = new HashMap<String, Long>();
+    protected Set<Class<? extends ServiceParserInterface>> serviceParserClasses = new CopyOnWriteArraySet<Class<? extends ServiceParserInterface>>(Arrays.asList(DEFAULT_PARSERS));
+
+    /**
+     * parsers and the file stamps (size, last modified) they were build from; always replaced as a whole, never modified
+     */
+    protected volatile Snapshot snapshot = new Snapshot(Collections.<Class, ServiceParserInterface>emptyMap(), Collections.<String, long[]>emptyMap());
+
+    protected AtomicBoolean building = new AtomicBoolean(false);
+
+    /**
+     * changed on every swapped snapshot
+     */
+    protected AtomicLong modificationCount = new AtomicLong();
+
+    protected volatile boolean disposed = false;
 
     public ServiceXmlParserFactory(Project project) {
         this.project = project;
     }
 
-    protected boolean isModified(ArrayList<File> serviceFiles) {
-        if(this.serviceFiles.size() != serviceFiles.size()) {
+    protected static boolean isModified(Map<String, long[]> parsedFiles, ArrayList<File> serviceFiles) {
+        if(parsedFiles.size() != serviceFiles.size()) {
             return true;
         }
 
         for(File serviceFile: serviceFiles) {
-            if(serviceFile.exists()) {
-                if(!this.serviceFiles.containsKey(serviceFile.getAbsolutePath())) {
-                    return true;
-                }
-                if(!this.serviceFiles.get(serviceFile.getAbsolutePath()).equals(serviceFile.lastModified())) {
-                    return true;
-                }
+            long[] stamp = parsedFiles.get(serviceFile.getAbsolutePath());
+            if(stamp == null || !Arrays.equals(stamp, getStamp(serviceFile))) {
+                return true;
             }
         }
 
         return false;
     }
 
+    /**
+     * size and last modified; a missing file has a stamp too, so "still missing" is not a change
+     */
+    protected static long[] getStamp(File file) {
+        if(!file.exists()) {
+            return MISSING_FILE_STAMP;
+        }
+
+        return new long[] {file.length(), file.lastModified()};
+    }
+
     @Nullable
     public <T extends ServiceParserInterface> T parser(Class<T> serviceParser) {
 
@@ -49,49 +119,215 @@ public class ServiceXmlParserFactory {
 
         ArrayList<File> settingsServiceFiles = symfony2ProjectComponent.getContainerFiles();
 
-        if (this.serviceParserInstance != null && !this.isModified(settingsServiceFiles)) {
-            return (T) this.serviceParserInstance;
+        Snapshot snapshot = this.snapshot;
+        if(!snapshot.getServiceParserInstances().containsKey(serviceParser)) {
+            this.serviceParserClasses.add(serviceParser);
+            this.scheduleBuild(settingsServiceFiles);
+        } else if(isModified(snapshot.getServiceFiles(), settingsServiceFiles)) {
+            this.scheduleBuild(settingsServiceFiles);
         }
 
-        try {
-            this.serviceParserInstance = serviceParser.newInstance();
-        } catch (InstantiationException ignored) {
-        } catch (IllegalAccessException ignored) {
+        // build may have run synchronously
+        snapshot = this.snapshot;
+        if(snapshot.getServiceParserInstances().containsKey(serviceParser)) {
+            return (T) snapshot.getServiceParserInstances().get(serviceParser);
+        }
+
+        return createInstance(serviceParser);
+    }
+
+    protected void scheduleBuild(final ArrayList<File> settingsServiceFiles) {
+
+        if(this.disposed || !this.building.compareAndSet(false, true)) {
+            return;
         }
 
-        if (this.serviceParserInstance != null) {
-            this.serviceFiles = new HashMap<String, Long>();
-            for(File settingsServiceFile: settingsServiceFiles) {
-                if(settingsServiceFile.exists()) {
-                    this.serviceParserInstance.parser(settingsServiceFile);
-                    serviceFiles.put(settingsServiceFile.getAbsolutePath(), settingsServiceFile.lastModified());
+        Runnable runnable = new Runnable() {
+            public void run() {
+                try {
+                    Snapshot snapshot = build(settingsServiceFiles);
+                    if(!ServiceXmlParserFactory.this.disposed) {
+                        ServiceXmlParserFactory.this.setSnapshot(snapshot);
+                        writeSnapshot(settingsServiceFiles, snapshot);
+                    }
+                } finally {
+                    ServiceXmlParserFactory.this.building.set(false);
                 }
             }
+        };
+
+        Application application = ApplicationManager.getApplication();
+        if(application.isUnitTestMode()) {
+            runnable.run();
+        } else {
+            application.executeOnPooledThread(runnable);
+        }
+
+    }
+
+    protected Snapshot build(ArrayList<File> settingsServiceFiles) {
+
+        Map<Class, ServiceParserInterface> serviceParserInstances = new HashMap<Class, ServiceParserInterface>();
+        for(Class<? extends ServiceParserInterface> serviceParserClass: this.serviceParserClasses) {
+            ServiceParserInterface serviceParserInstance = createInstance(serviceParserClass);
+            if(serviceParserInstance != null) {
+                serviceParserInstances.put(serviceParserClass, serviceParserInstance);
+            }
         }
 
-        return (T) this.serviceParserInstance;
+        Map<String, long[]> serviceFiles = new HashMap<String, long[]>();
+        for(File settingsServiceFile: settingsServiceFiles) {
+            // stamp before parsing, so a file changed while we are reading it gets parsed again
+            long[] stamp = getStamp(settingsServiceFile);
+            serviceFiles.put(settingsServiceFile.getAbsolutePath(), stamp);
+            if(stamp != MISSING_FILE_STAMP) {
+                ServiceXmlReader.read(settingsServiceFile, serviceParserInstances.values());
+            }
+        }
+
+        return new Snapshot(serviceParserInstances, serviceFiles);
+    }
+
+    /**
+     * Load the persisted snapshot on a pooled thread, so reading it does not block opening the project
+     */
+    public void scheduleLoadSnapshot() {
+
+        Runnable runnable = new Runnable() {
+            public void run() {
+                loadSnapshot();
+            }
+        };
+
+        Application application = ApplicationManager.getApplication();
+        if(application.isUnitTestMode()) {
+            runnable.run();
+        } else {
+            application.executeOnPooledThread(runnable);
+        }
+
+    }
+
+    /**
+     * Load the persisted snapshot if nothing was parsed yet; stale data is served until the rebuild is finished
+     */
+    public void loadSnapshot() {
+
+        if(!this.snapshot.getServiceParserInstances().isEmpty()) {
+            return;
+        }
+
+        ArrayList<File> settingsServiceFiles = this.project.getComponent(Symfony2ProjectComponent.class).getContainerFiles();
+        if(settingsServiceFiles.size() == 0) {
+            return;
+        }
+
+        File snapshotFile = getSnapshotFile(settingsServiceFiles);
+
+        ServiceXmlSnapshotStorage storage;
+        try {
+            storage = ServiceXmlSnapshotStorage.read(snapshotFile, this.serviceParserClasses);
+        } catch (IOException ignored) {
+            // broken snapshot; the next build writes a new one
+            snapshotFile.delete();
+            return;
+        }
+
+        if(storage == null) {
+            return;
+        }
+
+        // a build may have finished while we were reading
+        synchronized (this) {
+            if(!this.disposed && this.snapshot.getServiceParserInstances().isEmpty()) {
+                this.setSnapshot(new Snapshot(storage.getServiceParserInstances(), storage.getServiceFiles()));
+            }
+        }
+    }
+
+    protected void writeSnapshot(ArrayList<File> settingsServiceFiles, Snapshot snapshot) {
+
+        if(settingsServiceFiles.size() == 0) {
+            return;
+        }
+
+        try {
+            ServiceXmlSnapshotStorage.write(getSnapshotFile(settingsServiceFiles), snapshot.getServiceFiles(), snapshot.getServiceParserInstances());
+        } catch (IOException ignored) {
+        }
+
+    }
+
+    /**
+     * one snapshot per project and set of container files
+     */
+    protected File getSnapshotFile(ArrayList<File> settingsServiceFiles) {
+
+        StringBuilder paths = new StringBuilder();
+        for(File settingsServiceFile: settingsServiceFiles) {
+            paths.append(settingsServiceFile.getAbsolutePath()).append(File.pathSeparatorChar);
+        }
+
+        String name = this.project.getLocationHash() + "." + Integer.toHexString(paths.toString().hashCode()) + ".dat";
+        return new File(PathManager.getSystemPath(), "symfony2" + File.separator + "container" + File.separator + name);
     }
 
     public void setCacheInvalid() {
-        this.serviceFiles = new HashMap<String, Long>();
+        this.setSnapshot(new Snapshot(this.snapshot.getServiceParserInstances(), Collections.<String, long[]>emptyMap()));
+    }
+
+    protected synchronized void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.modificationCount.incrementAndGet();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        this.disposed = true;
+        this.setSnapshot(new Snapshot(Collections.<Class, ServiceParserInterface>emptyMap(), Collections.<String, long[]>emptyMap()));
+    }
+
+    @Nullable
+    protected static <T extends ServiceParserInterface> T createInstance(Class<T> serviceParser) {
+        try {
+            return serviceParser.newInstance();
+        } catch (InstantiationException ignored) {
+        } catch (IllegalAccessException ignored) {
+        }
+
+        return null;
+    }
+
+    public static ServiceXmlParserFactory getInstance(Project project) {
+        return ServiceManager.getService(project, ServiceXmlParserFactory.class);
     }
 
     public static <T extends ServiceParserInterface> T getInstance(Project project, Class<T> serviceParser){
+        return getInstance(project).parser(serviceParser);
+    }
 
-        Map<Class, ServiceXmlParserFactory> projectInstance = instance.get(project);
+    protected static class Snapshot {
 
-        if(projectInstance == null) {
-            projectInstance = new HashMap<Class, ServiceXmlParserFactory>();
-            instance.put(project, projectInstance);
+        private final Map<Class, ServiceParserInterface> serviceParserInstances;
+        private final Map<String, long[]> serviceFiles;
+
+        public Snapshot(Map<Class, ServiceParserInterface> serviceParserInstances, Map<String, long[]> serviceFiles) {
+            this.serviceParserInstances = serviceParserInstances;
+            this.serviceFiles = serviceFiles;
         }
 
-        ServiceXmlParserFactory serviceXmlParserFactory = projectInstance.get(serviceParser);
-        if(serviceXmlParserFactory == null) {
-            serviceXmlParserFactory = new ServiceXmlParserFactory(project);
-            projectInstance.put(serviceParser, serviceXmlParserFactory);
+        public Map<Class, ServiceParserInterface> getServiceParserInstances() {
+            return serviceParserInstances;
         }
 
-        return serviceXmlParserFactory.parser(serviceParser);
+        public Map<String, long[]> getServiceFiles() {
+            return serviceFiles;
+        }
 
     }
 
@@ -0,0 +1,185 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Collection;
+
+/**
+ * Single pass over a container file which feeds all given parsers with the same element events.
+ *
+ * Files and streams are read with StAX, so only the current element path is held in memory;
+ * an already loaded DOM document can still be walked with the same events.
+ */
+public class ServiceXmlReader {
+
+    private static XMLInputFactory xmlInputFactory;
+
+    public static void read(File file, Collection<? extends ServiceParserInterface> parsers) {
+
+        InputStream stream = null;
+        try {
+            stream = new BufferedInputStream(new FileInputStream(file));
+            read(stream, parsers);
+        } catch (IOException ignored) {
+        } finally {
+            if(stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+    }
+
+    public static void read(InputStream stream, Collection<? extends ServiceParserInterface> parsers) {
+
+        XMLStreamReader reader = null;
+        try {
+            reader = getXmlInputFactory().createXMLStreamReader(stream);
+        } catch (XMLStreamException ignored) {
+        }
+
+        read(reader, parsers);
+    }
+
+    /**
+     * content which is not saved yet, like the psi text of an opened file
+     */
+    public static void read(CharSequence content, Collection<? extends ServiceParserInterface> parsers) {
+
+        XMLStreamReader reader = null;
+        try {
+            reader = getXmlInputFactory().createXMLStreamReader(new StringReader(content.toString()));
+        } catch (XMLStreamException ignored) {
+        }
+
+        read(reader, parsers);
+    }
+
+    private static void read(@Nullable XMLStreamReader reader, Collection<? extends ServiceParserInterface> parsers) {
+
+        ServiceXmlElement element = null;
+
+        try {
+            while(reader != null && reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        element = new ServiceXmlElement(reader.getLocalName(), element);
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+
+                        for(ServiceParserInterface parser: parsers) {
+                            parser.startElement(element);
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if(element != null) {
+                            element.appendText(reader.getText());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if(element != null) {
+                            for(ServiceParserInterface parser: parsers) {
+                                parser.endElement(element);
+                            }
+                            element = element.getParent();
+                        }
+                        break;
+                }
+            }
+        } catch (XMLStreamException ignored) {
+        } finally {
+            if(reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+
+        for(ServiceParserInterface parser: parsers) {
+            parser.endDocument();
+        }
+
+    }
+
+    public static void read(Document document, Collection<? extends ServiceParserInterface> parsers) {
+
+        if(document.getDocumentElement() != null) {
+            visit(document.getDocumentElement(), null, parsers);
+        }
+
+        for(ServiceParserInterface parser: parsers) {
+            parser.endDocument();
+        }
+
+    }
+
+    /**
+     * local name like the streaming reader; documents parsed without namespace awareness only know the node name
+     */
+    private static String getLocalName(Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+
+    private static void visit(Element node, @Nullable ServiceXmlElement parent, Collection<? extends ServiceParserInterface> parsers) {
+
+        ServiceXmlElement element = new ServiceXmlElement(getLocalName(node), parent);
+
+        NamedNodeMap attributes = node.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            element.setAttribute(getLocalName(attribute), attribute.getNodeValue());
+        }
+
+        for(ServiceParserInterface parser: parsers) {
+            parser.startElement(element);
+        }
+
+        NodeList childNodes = node.getChildNodes();
+        for (int i = 0; i < childNodes.getLength(); i++) {
+            Node childNode = childNodes.item(i);
+            if(childNode instanceof Element) {
+                visit((Element) childNode, element, parsers);
+            } else if(childNode.getNodeType() == Node.TEXT_NODE || childNode.getNodeType() == Node.CDATA_SECTION_NODE) {
+                element.appendText(childNode.getNodeValue());
+            }
+        }
+
+        for(ServiceParserInterface parser: parsers) {
+            parser.endElement(element);
+        }
+
+    }
+
+    private static synchronized XMLInputFactory getXmlInputFactory() {
+
+        if(xmlInputFactory == null) {
+            xmlInputFactory = XMLInputFactory.newInstance();
+            xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        }
+
+        return xmlInputFactory;
+    }
+
+}
@@ -0,0 +1,218 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of parsed container data:
+ *
+ * header: version, container files (path, size, last modified)
+ * body: per parser its class name and the payload written by {@link ServiceSnapshotInterface}
+ */
+public class ServiceXmlSnapshotStorage {
+
+    private static final int VERSION = 1;
+
+    private Map<String, long[]> serviceFiles = new HashMap<String, long[]>();
+    private Map<Class, ServiceParserInterface> serviceParserInstances = new HashMap<Class, ServiceParserInterface>();
+
+    /**
+     * @return path to [size, last modified] of the container files the snapshot was build from
+     */
+    public Map<String, long[]> getServiceFiles() {
+        return serviceFiles;
+    }
+
+    public Map<Class, ServiceParserInterface> getServiceParserInstances() {
+        return serviceParserInstances;
+    }
+
+    /**
+     * @param serviceFiles path to [size, last modified] of the parsed container files
+     */
+    public static void write(File snapshotFile, Map<String, long[]> serviceFiles, Map<Class, ServiceParserInterface> serviceParserInstances) throws IOException {
+
+        File parent = snapshotFile.getParentFile();
+        if(parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("can not create " + parent.getPath());
+        }
+
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+        try {
+            output.writeInt(VERSION);
+
+            output.writeInt(serviceFiles.size());
+            for(Map.Entry<String, long[]> entry: serviceFiles.entrySet()) {
+                writeString(output, entry.getKey());
+                output.writeLong(entry.getValue()[0]);
+                output.writeLong(entry.getValue()[1]);
+            }
+
+            int count = 0;
+            for(ServiceParserInterface serviceParser: serviceParserInstances.values()) {
+                if(serviceParser instanceof ServiceSnapshotInterface) {
+                    count++;
+                }
+            }
+
+            output.writeInt(count);
+            for(Map.Entry<Class, ServiceParserInterface> entry: serviceParserInstances.entrySet()) {
+                if(entry.getValue() instanceof ServiceSnapshotInterface) {
+                    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                    DataOutputStream payloadOutput = new DataOutputStream(payload);
+                    ((ServiceSnapshotInterface) entry.getValue()).writeSnapshot(payloadOutput);
+                    payloadOutput.flush();
+
+                    writeString(output, entry.getKey().getName());
+                    output.writeInt(payload.size());
+                    payload.writeTo(output);
+                }
+            }
+        } finally {
+            output.close();
+        }
+
+        if(snapshotFile.exists() && !snapshotFile.delete()) {
+            tempFile.delete();
+            throw new IOException("can not replace " + snapshotFile.getPath());
+        }
+
+        if(!tempFile.renameTo(snapshotFile)) {
+            throw new IOException("can not write " + snapshotFile.getPath());
+        }
+
+    }
+
+    /**
+     * Payloads of unknown parser classes are skipped; a broken snapshot throws IOException, also if a parser fails on it
+     */
+    @Nullable
+    public static ServiceXmlSnapshotStorage read(File snapshotFile, Collection<Class<? extends ServiceParserInterface>> serviceParserClasses) throws IOException {
+
+        if(!snapshotFile.isFile()) {
+            return null;
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+        try {
+            return read(input, snapshotFile.length(), serviceParserClasses);
+        } catch (RuntimeException e) {
+            throw new IOException("invalid snapshot " + snapshotFile.getPath() + ": " + e);
+        } finally {
+            input.close();
+        }
+
+    }
+
+    @Nullable
+    private static ServiceXmlSnapshotStorage read(DataInputStream input, long size, Collection<Class<? extends ServiceParserInterface>> serviceParserClasses) throws IOException {
+
+        Map<String, Class<? extends ServiceParserInterface>> classNames = new HashMap<String, Class<? extends ServiceParserInterface>>();
+        for(Class<? extends ServiceParserInterface> serviceParserClass: serviceParserClasses) {
+            classNames.put(serviceParserClass.getName(), serviceParserClass);
+        }
+
+        if(input.readInt() != VERSION) {
+            return null;
+        }
+
+        ServiceXmlSnapshotStorage storage = new ServiceXmlSnapshotStorage();
+
+        int files = input.readInt();
+        for (int i = 0; i < files; i++) {
+            String path = readString(input);
+            storage.serviceFiles.put(path, new long[] {input.readLong(), input.readLong()});
+        }
+
+        int parsers = input.readInt();
+        for (int i = 0; i < parsers; i++) {
+            Class<? extends ServiceParserInterface> serviceParserClass = classNames.get(readString(input));
+
+            int length = input.readInt();
+            if(length < 0 || length > size) {
+                throw new IOException("invalid snapshot payload length " + length);
+            }
+
+            ServiceParserInterface serviceParser = null;
+            if(serviceParserClass != null) {
+                try {
+                    serviceParser = serviceParserClass.newInstance();
+                } catch (InstantiationException ignored) {
+                } catch (IllegalAccessException ignored) {
+                }
+            }
+
+            // every payload is read as a whole, so a parser can not read into the next one
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+
+            if(serviceParser instanceof ServiceSnapshotInterface) {
+                ByteArrayInputStream payloadStream = new ByteArrayInputStream(payload);
+                ((ServiceSnapshotInterface) serviceParser).readSnapshot(new DataInputStream(payloadStream));
+                if(payloadStream.available() != 0) {
+                    throw new IOException("invalid snapshot payload of " + serviceParserClass.getName());
+                }
+                storage.serviceParserInstances.put(serviceParserClass, serviceParser);
+            }
+        }
+
+        return storage;
+    }
+
+    public static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    public static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    public static void writeNullableString(DataOutput output, @Nullable String value) throws IOException {
+        output.writeBoolean(value != null);
+        if(value != null) {
+            writeString(output, value);
+        }
+    }
+
+    @Nullable
+    public static String readNullableString(DataInput input) throws IOException {
+        return input.readBoolean() ? readString(input) : null;
+    }
+
+    public static void writeStringMap(DataOutput output, Map<String, String> map) throws IOException {
+        output.writeInt(map.size());
+        for(Map.Entry<String, String> entry: map.entrySet()) {
+            writeNullableString(output, entry.getKey());
+            writeNullableString(output, entry.getValue());
+        }
+    }
+
+    public static void readStringMap(DataInput input, Map<String, String> map) throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(readNullableString(input), readNullableString(input));
+        }
+    }
+
+}
@@ -1,9 +1,13 @@
 package fr.adrienbrault.idea.symfony2plugin.util.yaml;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import org.jetbrains.annotations.Nullable;
@@ -14,22 +18,49 @@ import org.jetbrains.yaml.psi.YAMLKeyValue;
 import org.jetbrains.yaml.psi.impl.YAMLPsiElementImpl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class YamlHelper {
 
+    private static final Key<CachedValue<Map<String, String>>> LOCAL_SERVICE_MAP = new Key<CachedValue<Map<String, String>>>("SYMFONY2_YAML_LOCAL_SERVICE_MAP");
+    private static final Key<CachedValue<Map<String, String>>> LOCAL_PARAMETER_MAP = new Key<CachedValue<Map<String, String>>>("SYMFONY2_YAML_LOCAL_PARAMETER_MAP");
+
+    /**
+     * services of the file, walked once per file change and shared by all callers
+     */
     static public Map<String, String> getLocalServiceMap(PsiElement psiElement) {
-        return new YamlLocalServiceMap().getLocalServiceMap(psiElement);
-    }
 
-    @Nullable
-    static public PsiElement getLocalServiceName(PsiFile psiFile, String findServiceName) {
-        return new YamlLocalServiceMap().getLocalServiceName(psiFile, findServiceName);
+        final PsiFile psiFile = psiElement.getContainingFile();
+        if(psiFile == null) {
+            return Collections.emptyMap();
+        }
+
+        return CachedValuesManager.getManager(psiFile.getProject()).getCachedValue(psiFile, LOCAL_SERVICE_MAP, new CachedValueProvider<Map<String, String>>() {
+            @Override
+            public Result<Map<String, String>> compute() {
+                return Result.create(Collections.unmodifiableMap(new YamlLocalServiceMap().getLocalServiceMap(psiFile)), psiFile);
+            }
+        }, false);
     }
 
+    /**
+     * parameters of the file, walked once per file change and shared by all callers
+     */
     static public Map<String, String> getLocalParameterMap(PsiElement psiElement) {
-        return new YamlLocalServiceMap().getLocalParameterMap(psiElement);
+
+        final PsiFile psiFile = psiElement.getContainingFile();
+        if(psiFile == null) {
+            return Collections.emptyMap();
+        }
+
+        return CachedValuesManager.getManager(psiFile.getProject()).getCachedValue(psiFile, LOCAL_PARAMETER_MAP, new CachedValueProvider<Map<String, String>>() {
+            @Override
+            public Result<Map<String, String>> compute() {
+                return Result.create(Collections.unmodifiableMap(new YamlLocalServiceMap().getLocalParameterMap(psiFile)), psiFile);
+            }
+        }, false);
     }
 
     /**
@@ -157,41 +188,6 @@ public class YamlHelper {
 
         }
 
-        @Nullable
-        public PsiElement getLocalServiceName(PsiFile psiFile, String findServiceName) {
-
-            if(!(psiFile.getFirstChild() instanceof YAMLDocument)) {
-                return null;
-            }
-
-            YAMLDocument yamlDocument = (YAMLDocument) psiFile.getFirstChild();
-
-            // get services or parameter key
-            YAMLKeyValue[] yamlKeys = PsiTreeUtil.getChildrenOfType(yamlDocument, YAMLKeyValue.class);
-            if(yamlKeys == null) {
-                return null;
-            }
-
-            for(YAMLKeyValue yamlKeyValue : yamlKeys) {
-                String yamlConfigKey = yamlKeyValue.getName();
-                if(yamlConfigKey != null && yamlConfigKey.equals("services")) {
-
-                    YAMLKeyValue yamlServices[] = PsiTreeUtil.getChildrenOfType(yamlKeyValue.getValue(),YAMLKeyValue.class);
-                    if(yamlServices != null) {
-                        for(YAMLKeyValue yamlServiceKeyValue : yamlServices) {
-                            String serviceName = yamlServiceKeyValue.getName();
-                            if(serviceName != null && serviceName.equals(findServiceName)) {
-                                return yamlServiceKeyValue;
-                            }
-
-                        }
-                    }
-                }
-            }
-
-            return null;
-        }
-
         public Map<String, String> getLocalServiceMap(PsiElement psiElement) {
 
             Map<String, String> map = new HashMap<String, String>();
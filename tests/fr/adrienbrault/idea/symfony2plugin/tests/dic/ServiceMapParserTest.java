@@ -45,4 +45,23 @@ public class ServiceMapParserTest extends Assert {
         assertEquals("\\AdrienBrault\\Awesome", serviceMap.getPublicMap().get("translator"));
     }
 
+    @Test
+    public void testResolveClassNames() throws Exception {
+        ServiceMapParser serviceMapParser = new ServiceMapParser();
+
+        String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<container>" +
+                "<service id=\"adrienbrault\" class=\"AdrienBrault\\Awesome\"/>" +
+                "<service id=\"adrienbrault.second\" class=\"AdrienBrault\\Awesome\"/>" +
+            "</container>";
+        ServiceMap serviceMap = serviceMapParser.parse(new ByteArrayInputStream(xmlString.getBytes()));
+
+        assertTrue(serviceMap.resolveClassNames("AdrienBrault\\Awesome").contains("adrienbrault"));
+        assertTrue(serviceMap.resolveClassNames("\\AdrienBrault\\Awesome").contains("adrienbrault.second"));
+        assertEquals(2, serviceMap.resolveClassNames("AdrienBrault\\Awesome").size());
+        assertEquals("request", serviceMap.resolveClassName("Symfony\\Component\\HttpFoundation\\Request"));
+        assertEquals(0, serviceMap.resolveClassNames("AdrienBrault\\Unknown").size());
+        assertNull(serviceMap.resolveClassName("AdrienBrault\\Unknown"));
+    }
+
 }
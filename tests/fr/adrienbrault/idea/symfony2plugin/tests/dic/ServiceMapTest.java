@@ -0,0 +1,89 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.dic;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceDefinition;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class ServiceMapTest extends Assert {
+
+    @Test
+    public void testWithDefinitions() {
+
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("foo", "\\Compiled\\Foo");
+
+        ServiceMap serviceMap = new ServiceMap(map, map);
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("bar.class", "Acme\\Bar");
+
+        List<ServiceDefinition> definitions = new ArrayList<ServiceDefinition>();
+        definitions.add(new ServiceDefinition("Foo", "Source\\Foo", true, Collections.<String>emptyList(), 0));
+        definitions.add(new ServiceDefinition("bar", "%bar.class%", true, Collections.<String>emptyList(), 0));
+        definitions.add(new ServiceDefinition("Acme.Private", "\\Acme\\PrivateService", false, Collections.<String>emptyList(), 0));
+        definitions.add(new ServiceDefinition("unknown_parameter", "%unknown.class%", true, Collections.<String>emptyList(), 0));
+        definitions.add(new ServiceDefinition("alias", null, true, Collections.<String>emptyList(), 0));
+
+        ServiceMap merged = serviceMap.withDefinitions(definitions, parameters);
+
+        // compiled container wins
+        assertEquals("\\Compiled\\Foo", merged.getMap().get("foo"));
+
+        assertEquals("\\Acme\\Bar", merged.getMap().get("bar"));
+        assertEquals("\\Acme\\Bar", merged.getPublicMap().get("bar"));
+        assertEquals("bar", merged.resolveClassName("Acme\\Bar"));
+
+        assertEquals("\\Acme\\PrivateService", merged.getMap().get("acme.private"));
+        assertNull(merged.getPublicMap().get("acme.private"));
+
+        assertFalse(merged.getMap().containsKey("unknown_parameter"));
+        assertFalse(merged.getMap().containsKey("alias"));
+    }
+
+    @Test
+    public void testWithKnownDefinitionsOnly() {
+
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("foo", "\\Compiled\\Foo");
+
+        ServiceMap serviceMap = new ServiceMap(map, map);
+        List<ServiceDefinition> definitions = Collections.singletonList(new ServiceDefinition("foo", "Source\\Foo", true, Collections.<String>emptyList(), 0));
+
+        assertSame(serviceMap, serviceMap.withDefinitions(definitions, Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void testMaps() {
+
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("foo", "\\Foo");
+        map.put("foo.alias", "\\Foo");
+        map.put("private", "\\Bar");
+
+        Map<String, String> publicMap = new HashMap<String, String>();
+        publicMap.put("foo", "\\Foo");
+        publicMap.put("public_only", "\\Baz");
+
+        ServiceMap serviceMap = new ServiceMap(map, publicMap);
+
+        assertEquals(map, serviceMap.getMap());
+        assertEquals(publicMap, serviceMap.getPublicMap());
+        assertNull(serviceMap.getPublicMap().get("private"));
+        assertFalse(serviceMap.getMap().containsKey("public_only"));
+
+        assertEquals(new HashSet<String>(Arrays.asList("foo", "foo.alias")), new HashSet<String>(serviceMap.resolveClassNames("Foo")));
+        assertEquals("private", serviceMap.resolveClassName("\\Bar"));
+        assertNull(serviceMap.resolveClassName("Baz"));
+        assertTrue(serviceMap.resolveClassNames("Unknown").isEmpty());
+    }
+
+}
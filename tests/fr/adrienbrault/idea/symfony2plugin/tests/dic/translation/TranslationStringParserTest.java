@@ -5,6 +5,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
 
 import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
 
@@ -16,24 +18,39 @@ public class TranslationStringParserTest  extends Assert {
         File testFile = new File(this.getClass().getResource("translations/catalogue.de.php").getFile());
         TranslationStringMap map =  new TranslationStringParser().parse(testFile);
 
-        assertEquals("registration.email.message", map.getStringMap().get("FOSUserBundle:registration.email.message"));
-        assertEquals("layout.logout", map.getStringMap().get("FOSUserBundle:layout.logout"));
-        assertEquals("button.next", map.getStringMap().get("CraueFormFlowBundle:button.next"));
-        assertEquals("foo.bar", map.getStringMap().get("validators:foo.bar"));
-        assertEquals("foo.baz", map.getStringMap().get("validators:foo.baz"));
-        assertEquals("foo.escape", map.getStringMap().get("validators:foo.escape"));
+        assertTrue(map.hasString("FOSUserBundle", "registration.email.message"));
+        assertTrue(map.hasString("FOSUserBundle", "layout.logout"));
+        assertTrue(map.hasString("CraueFormFlowBundle", "button.next"));
+        assertTrue(map.hasString("validators", "foo.bar"));
+        assertTrue(map.hasString("validators", "foo.baz"));
+        assertTrue(map.hasString("validators", "foo.escape"));
+        assertFalse(map.hasString("validators", "layout.logout"));
 
         assertTrue(map.getDomainList().contains("FOSUserBundle"));
         assertFalse(map.getDomainList().contains("NotInList"));
 
         assertTrue(map.getDomainMap("FOSUserBundle").size() > 0);
         assertEquals(0, map.getDomainMap("NotInList").size());
+        assertEquals("This value should be false.", map.getDomainMap("validators").iterator().next());
+    }
+
+    @Test
+    public void testLocales() {
+
+        File testFile = new File(this.getClass().getResource("translations/catalogue.de.php").getFile());
+        TranslationStringMap map =  new TranslationStringParser().parse(testFile);
+
+        // own and fallback catalogue
+        assertEquals(new HashSet<String>(Arrays.asList("de", "en")), map.getLocales("CraueFormFlowBundle", "button.next"));
+        assertEquals(new HashSet<String>(Arrays.asList("en")), map.getLocales("CraueFormFlowBundle", "button.finish"));
+        assertEquals(new HashSet<String>(Arrays.asList("de")), map.getLocales("validators", "foo.escape"));
+        assertTrue(map.getLocales("validators", "unknown").isEmpty());
     }
 
     @Test
     public void testParsePathMatcher() {
         File testFile = new File(this.getClass().getResource("translations/catalogue.de.php").getFile());
         TranslationStringMap map = new TranslationStringParser().parsePathMatcher(testFile.getParentFile().getPath());
-        assertEquals("registration.email.message", map.getStringMap().get("FOSUserBundle:registration.email.message"));
+        assertTrue(map.hasString("FOSUserBundle", "registration.email.message"));
     }
 }
@@ -0,0 +1,108 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteIndex;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RouteIndexTest extends Assert {
+
+    private RouteIndex routeIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        File testFile = new File(this.getClass().getResource("appTestUrlGenerator.php").getFile());
+        routeIndex = RouteIndex.create(fileToString(testFile));
+    }
+
+    @Test
+    public void testRouteByName() {
+        assertEquals("Lol\\CoreBundle\\Controller\\FeedbackController::feedbackAction", routeIndex.getRoute("feedback").getController());
+        assertEquals("/api/users/getInfo", routeIndex.getRoute("api_users_getInfo").getPath());
+        assertEquals("/en/{alias}/", routeIndex.getRoute("page").getPath());
+        assertNull(routeIndex.getRoute("ru__RG__page"));
+        assertNull(routeIndex.getRoute("_assetic_91dd2a8"));
+    }
+
+    @Test
+    public void testRoutesByController() {
+        List<String> names = new ArrayList<String>();
+        for(Route route: routeIndex.getRoutesByController("Lol\\CoreBundle\\Controller\\IndexController::homeAction")) {
+            names.add(route.getName());
+        }
+
+        assertEquals(1, names.size());
+        assertTrue(names.contains("home"));
+        assertEquals(0, routeIndex.getRoutesByController("Foo\\Controller::barAction").size());
+    }
+
+    @Test
+    public void testRoutesByPathPrefix() {
+        List<String> paths = new ArrayList<String>();
+        for(Route route: routeIndex.getRoutesByPathPrefix("/en/")) {
+            paths.add(route.getPath());
+        }
+
+        assertEquals(3, paths.size());
+        assertEquals("/en/", paths.get(0));
+        assertEquals("/en/feedback/", paths.get(1));
+        assertEquals("/en/{alias}/", paths.get(2));
+
+        assertEquals(0, routeIndex.getRoutesByPathPrefix("/unknown").size());
+    }
+
+    @Test
+    public void testControllerNormalization() {
+
+        RouteIndex routeIndex = RouteIndex.create(createUrlGenerator(
+            "acme_foo", "Acme\\\\DemoBundle\\\\Controller\\\\FooController::barAction", "/acme/foo",
+            "acme_service", "acme.controller:fooAction", "/acme/service",
+            "acme_service_other", "acme.controller:fooAction", "/acme/service/other"
+        ));
+
+        assertEquals(1, routeIndex.getRoutesByController("\\Acme\\DemoBundle\\Controller\\FooController::barAction").size());
+        assertEquals(1, routeIndex.getRoutesByClassMethod("acme\\demobundle\\controller\\foocontroller", "BARACTION").size());
+        assertEquals(2, routeIndex.getRoutesByServiceMethod("acme.controller", "fooAction").size());
+        assertEquals(0, routeIndex.getRoutesByServiceMethod("acme.controller", "barAction").size());
+        assertEquals(2, routeIndex.getRoutesByPathPrefix("/acme/service").size());
+    }
+
+    /**
+     * url generator with routes as name, controller, path triples; a path of one text token
+     */
+    private static String createUrlGenerator(String... routes) {
+
+        StringBuilder content = new StringBuilder();
+        content.append("<?php\n\nclass appDevUrlGenerator extends Symfony\\Component\\Routing\\Generator\\UrlGenerator\n{\n");
+        content.append("    static private $declaredRoutes = array(\n");
+        for (int i = 0; i < routes.length; i += 3) {
+            content.append("        '").append(routes[i]).append("' => array (  0 =>   array (  ),  1 =>   array (    '_controller' => '").append(routes[i + 1]).append("',  ),  2 =>   array (  ),  3 =>   array (    0 =>     array (      0 => 'text',      1 => '").append(routes[i + 2]).append("',    ),  ),  4 =>   array (  ),),\n");
+        }
+        content.append("    );\n}\n");
+
+        return content.toString();
+    }
+
+    private String fileToString(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while(offset < bytes.length) {
+                offset += inputStream.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            inputStream.close();
+        }
+
+        return new String(bytes, "UTF-8");
+    }
+
+}
@@ -0,0 +1,46 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.controller;
+
+import fr.adrienbrault.idea.symfony2plugin.util.controller.ControllerAction;
+import fr.adrienbrault.idea.symfony2plugin.util.controller.ControllerActionIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ControllerActionIndexTest extends Assert {
+
+    @Test
+    public void testGetAction() {
+
+        List<ControllerAction> actions = new ArrayList<ControllerAction>();
+        ControllerAction fooAction = new ControllerAction("AcmeBundle:Foo:bar", null);
+        ControllerAction serviceAction = new ControllerAction("acme.controller:fooAction", null);
+        actions.add(fooAction);
+        actions.add(new ControllerAction("AcmeBundle:Foo:baz", null));
+        actions.add(serviceAction);
+
+        ControllerActionIndex actionIndex = new ControllerActionIndex(actions);
+
+        assertSame(fooAction, actionIndex.getAction("AcmeBundle:Foo:bar"));
+        assertSame(serviceAction, actionIndex.getAction("acme.controller:fooAction"));
+        assertNull(actionIndex.getAction("AcmeBundle:Foo:unknown"));
+        assertNull(actionIndex.getAction("AcmeBundle:Unknown:bar"));
+        assertEquals(actions, actionIndex.getActions());
+    }
+
+    @Test
+    public void testFirstActionWinsOnDuplicateNames() {
+
+        List<ControllerAction> actions = new ArrayList<ControllerAction>();
+        ControllerAction first = new ControllerAction("AcmeBundle:Foo:bar", null);
+        actions.add(first);
+        actions.add(new ControllerAction("AcmeBundle:Foo:bar", null));
+
+        ControllerActionIndex actionIndex = new ControllerActionIndex(actions);
+        assertSame(first, actionIndex.getAction("AcmeBundle:Foo:bar"));
+        assertEquals(2, actionIndex.getActions().size());
+        assertNull(actionIndex.getAction("AcmeBundle:Foo:baz"));
+    }
+
+}
@@ -0,0 +1,56 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.util.dict.CompactStringMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CompactStringMapTest extends Assert {
+
+    @Test
+    public void testLookup() {
+
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            map.put("acme.service_" + i, "\\Acme\\Foo" + (i % 10));
+        }
+        map.put("alias", null);
+
+        CompactStringMap compactStringMap = new CompactStringMap(map);
+
+        assertEquals(map, compactStringMap);
+        assertEquals(101, compactStringMap.size());
+        assertEquals("\\Acme\\Foo7", compactStringMap.get("acme.service_17"));
+        assertTrue(compactStringMap.containsKey("alias"));
+        assertNull(compactStringMap.get("alias"));
+        assertFalse(compactStringMap.containsKey("unknown"));
+        assertEquals(-1, compactStringMap.indexOf("unknown"));
+
+        // equal values share one instance
+        assertSame(compactStringMap.get("acme.service_1"), compactStringMap.get("acme.service_11"));
+    }
+
+    @Test
+    public void testView() {
+
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("foo", "\\Foo");
+        map.put("bar", "\\Bar");
+
+        CompactStringMap compactStringMap = new CompactStringMap(map);
+
+        BitSet slots = new BitSet();
+        slots.set(compactStringMap.indexOf("foo"));
+        Map<String, String> view = compactStringMap.view(slots);
+
+        assertEquals(1, view.size());
+        assertEquals("\\Foo", view.get("foo"));
+        assertFalse(view.containsKey("bar"));
+        assertNull(view.get("bar"));
+        assertEquals("foo", view.entrySet().iterator().next().getKey());
+    }
+
+}
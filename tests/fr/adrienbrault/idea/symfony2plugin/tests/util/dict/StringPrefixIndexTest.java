@@ -0,0 +1,50 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.util.dict.StringPrefixIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StringPrefixIndexTest extends Assert {
+
+    private StringPrefixIndex index = new StringPrefixIndex(Arrays.asList(
+        "AcmeShopBundle:Checkout:index.html.twig",
+        "AcmeShopBundle:Checkout:step.html.twig",
+        "AcmeShopBundle:Cart:index.html.twig",
+        "AcmeDemoBundle:Default:index.html.twig",
+        "@AcmeShop/Checkout/index.html.twig",
+        "@Twig/Exception/error.html.twig",
+        "base.html.twig"
+    ));
+
+    @Test
+    public void testBundlePrefix() {
+        assertEquals(Arrays.asList("AcmeShopBundle:Checkout:index.html.twig", "AcmeShopBundle:Checkout:step.html.twig"), index.getByPrefix("AcmeShopBundle:Checkout:"));
+        assertEquals(3, index.getByPrefix("AcmeShopBundle:").size());
+        assertEquals(4, index.getByPrefix("Acme").size());
+    }
+
+    @Test
+    public void testNamespacePrefix() {
+        assertEquals(Arrays.asList("@AcmeShop/Checkout/index.html.twig"), index.getByPrefix("@AcmeShop/"));
+        assertEquals(2, index.getByPrefix("@").size());
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        assertEquals(Arrays.asList("AcmeShopBundle:Cart:index.html.twig"), index.getByPrefix("acmeshopbundle:cart"));
+        assertEquals(Arrays.asList("base.html.twig"), index.getByPrefix("BASE"));
+    }
+
+    @Test
+    public void testEmptyAndUnknownPrefix() {
+        assertEquals(7, index.getByPrefix("").size());
+        assertEquals(Collections.<String>emptyList(), index.getByPrefix("Foo"));
+        List<String> all = index.getByPrefix("");
+        assertEquals("@AcmeShop/Checkout/index.html.twig", all.get(0));
+    }
+
+}
@@ -0,0 +1,166 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlEventParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlElement;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlReader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ServiceXmlReaderTest extends Assert {
+
+    @Test
+    public void testSharedPass() {
+
+        String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<container>" +
+                "<services>" +
+                    "<service id=\"foo\" class=\"Foo\\Bar\">" +
+                        "<tag name=\"kernel.event_listener\" event=\"kernel.request\"/>" +
+                    "</service>" +
+                "</services>" +
+            "</container>";
+
+        XmlServiceParser xmlServiceParser = new XmlServiceParser();
+        XmlTagParser xmlTagParser = new XmlTagParser();
+        XmlEventParser xmlEventParser = new XmlEventParser();
+
+        ServiceXmlReader.read(new ByteArrayInputStream(xmlString.getBytes()), Arrays.<ServiceParserInterface>asList(xmlServiceParser, xmlTagParser, xmlEventParser));
+
+        assertEquals("\\Foo\\Bar", xmlServiceParser.getServiceMap().getMap().get("foo"));
+        assertTrue(xmlTagParser.get().contains("kernel.event_listener"));
+        assertEquals("kernel.event_listener", xmlEventParser.get().get("kernel.request"));
+        assertEquals("Foo\\Bar", xmlEventParser.getEventSubscribers("kernel.request").get(0).getFqnClassName());
+    }
+
+    @Test
+    public void testReadContent() {
+
+        String xmlString = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" +
+            "<container>" +
+                "<parameters>" +
+                    "<parameter key=\"foo.class\">Foo\\Bar</parameter>" +
+                "</parameters>" +
+                "<services>" +
+                    "<service id=\"foo\" class=\"Foo\\Bar\"/>" +
+                    "<service id=\"private\" class=\"Foo\\Private\" public=\"false\"/>" +
+                "</services>" +
+            "</container>";
+
+        XmlServiceParser xmlServiceParser = new XmlServiceParser();
+        ParameterServiceParser parameterServiceParser = new ParameterServiceParser();
+
+        ServiceXmlReader.read(xmlString, Arrays.<ServiceParserInterface>asList(xmlServiceParser, parameterServiceParser));
+
+        assertEquals("\\Foo\\Bar", xmlServiceParser.getServiceMap().getPublicMap().get("foo"));
+        assertNull(xmlServiceParser.getServiceMap().getPublicMap().get("private"));
+        assertEquals("Foo\\Bar", parameterServiceParser.getParameterMap().get("foo.class"));
+    }
+
+    @Test
+    public void testReadInvalidContent() {
+
+        XmlServiceParser xmlServiceParser = new XmlServiceParser();
+        ServiceXmlReader.read("<container><services><service id=\"foo\" class=\"Foo\"/>", Arrays.<ServiceParserInterface>asList(xmlServiceParser));
+
+        // parsed until the error and finished
+        assertEquals("\\Foo", xmlServiceParser.getServiceMap().getMap().get("foo"));
+    }
+
+    @Test
+    public void testElementText() {
+
+        String xmlString = "<container>\n" +
+            "  <parameters>\n" +
+            "    <parameter key=\"foo.class\"> Foo\\Bar </parameter>\n" +
+            "    <parameter key=\"foo.list\" type=\"collection\">\n" +
+            "      <parameter>foo</parameter>\n" +
+            "    </parameter>\n" +
+            "  </parameters>\n" +
+            "</container>";
+
+        final Map<String, String> texts = new HashMap<String, String>();
+        ServiceXmlReader.read(xmlString, Arrays.<ServiceParserInterface>asList(new AbstractServiceParser() {
+            @Override
+            public void endElement(ServiceXmlElement element) {
+                String key = element.getAttribute("key");
+                texts.put(key != null ? key : element.getName() + element.getDepth(), element.getText());
+            }
+        }));
+
+        assertEquals(" Foo\\Bar ", texts.get("foo.class"));
+        assertEquals("foo", texts.get("parameter3"));
+
+        // no whitespace collected for elements with children
+        assertEquals("", texts.get("foo.list"));
+        assertEquals("", texts.get("parameters1"));
+        assertEquals("", texts.get("container0"));
+    }
+
+    @Test
+    public void testStreamingMatchesDocument() throws Exception {
+
+        File containerFile = new File(this.getClass().getResource("appDevDebugProjectContainer.xml").getFile());
+
+        XmlServiceParser streamingServiceParser = new XmlServiceParser();
+        XmlTagParser streamingTagParser = new XmlTagParser();
+        ParameterServiceParser streamingParameterParser = new ParameterServiceParser();
+        ServiceXmlReader.read(containerFile, Arrays.<ServiceParserInterface>asList(streamingServiceParser, streamingTagParser, streamingParameterParser));
+
+        XmlServiceParser documentServiceParser = new XmlServiceParser();
+        XmlTagParser documentTagParser = new XmlTagParser();
+        ParameterServiceParser documentParameterParser = new ParameterServiceParser();
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(containerFile);
+        ServiceXmlReader.read(document, Arrays.<ServiceParserInterface>asList(documentServiceParser, documentTagParser, documentParameterParser));
+
+        assertFalse(streamingServiceParser.getServiceMap().getMap().isEmpty());
+        assertEquals(documentServiceParser.getServiceMap().getMap(), streamingServiceParser.getServiceMap().getMap());
+        assertEquals(documentServiceParser.getServiceMap().getPublicMap(), streamingServiceParser.getServiceMap().getPublicMap());
+        assertEquals(documentTagParser.getTaggedClasses(), streamingTagParser.getTaggedClasses());
+        assertEquals(documentParameterParser.getParameterMap(), streamingParameterParser.getParameterMap());
+    }
+
+    @Test
+    public void testDocumentUsesLocalNames() throws Exception {
+
+        String xmlString = "<container xmlns:x=\"http://example.com/x\">" +
+                "<x:service x:id=\"foo\"/>" +
+            "</container>";
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xmlString.getBytes("UTF-8")));
+
+        final Map<String, String> documentIds = new HashMap<String, String>();
+        ServiceXmlReader.read(document, Arrays.<ServiceParserInterface>asList(new AbstractServiceParser() {
+            @Override
+            public void startElement(ServiceXmlElement element) {
+                documentIds.put(element.getName(), element.getAttribute("id"));
+            }
+        }));
+
+        final Map<String, String> streamingIds = new HashMap<String, String>();
+        ServiceXmlReader.read(xmlString, Arrays.<ServiceParserInterface>asList(new AbstractServiceParser() {
+            @Override
+            public void startElement(ServiceXmlElement element) {
+                streamingIds.put(element.getName(), element.getAttribute("id"));
+            }
+        }));
+
+        assertEquals("foo", documentIds.get("service"));
+        assertEquals(streamingIds.get("service"), documentIds.get("service"));
+    }
+
+}
@@ -0,0 +1,93 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlEventParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlReader;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlSnapshotStorage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ServiceXmlSnapshotStorageTest extends Assert {
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+
+        File containerFile = new File(this.getClass().getResource("appDevDebugProjectContainer.xml").getFile());
+
+        Map<Class, ServiceParserInterface> parsers = new HashMap<Class, ServiceParserInterface>();
+        parsers.put(XmlServiceParser.class, new XmlServiceParser());
+        parsers.put(XmlTagParser.class, new XmlTagParser());
+        parsers.put(XmlEventParser.class, new XmlEventParser());
+        ServiceXmlReader.read(containerFile, parsers.values());
+
+        Map<String, long[]> serviceFiles = new HashMap<String, long[]>();
+        serviceFiles.put(containerFile.getAbsolutePath(), new long[] {containerFile.length(), containerFile.lastModified()});
+
+        File snapshotFile = File.createTempFile("container", ".dat");
+        try {
+            ServiceXmlSnapshotStorage.write(snapshotFile, serviceFiles, parsers);
+
+            // XmlEventParser is not requested, so its payload must be skipped
+            Collection<Class<? extends ServiceParserInterface>> classes = new ArrayList<Class<? extends ServiceParserInterface>>(Arrays.asList(XmlServiceParser.class, XmlTagParser.class));
+            ServiceXmlSnapshotStorage storage = ServiceXmlSnapshotStorage.read(snapshotFile, classes);
+
+            assertNotNull(storage);
+            assertArrayEquals(new long[] {containerFile.length(), containerFile.lastModified()}, storage.getServiceFiles().get(containerFile.getAbsolutePath()));
+            assertNull(storage.getServiceParserInstances().get(XmlEventParser.class));
+
+            XmlServiceParser xmlServiceParser = (XmlServiceParser) storage.getServiceParserInstances().get(XmlServiceParser.class);
+            assertEquals(((XmlServiceParser) parsers.get(XmlServiceParser.class)).getServiceMap().getMap(), xmlServiceParser.getServiceMap().getMap());
+            assertEquals("\\Symfony\\Bundle\\FrameworkBundle\\DataCollector\\RouterDataCollector", xmlServiceParser.getServiceMap().getPublicMap().get("data_collector.router"));
+
+            XmlTagParser xmlTagParser = (XmlTagParser) storage.getServiceParserInstances().get(XmlTagParser.class);
+            assertTrue(xmlTagParser.get().contains("twig.extension.reloaded"));
+            assertTrue(xmlTagParser.getTaggedClass("kernel.event_listener").contains("Symfony\\Bundle\\FrameworkBundle\\DataCollector\\RouterDataCollector"));
+        } finally {
+            snapshotFile.delete();
+        }
+
+    }
+
+    @Test
+    public void testReadBrokenSnapshot() throws Exception {
+
+        Map<Class, ServiceParserInterface> parsers = new HashMap<Class, ServiceParserInterface>();
+        parsers.put(XmlServiceParser.class, new XmlServiceParser());
+        ServiceXmlReader.read(new File(this.getClass().getResource("appDevDebugProjectContainer.xml").getFile()), parsers.values());
+
+        File snapshotFile = File.createTempFile("container", ".dat");
+        try {
+            ServiceXmlSnapshotStorage.write(snapshotFile, new HashMap<String, long[]>(), parsers);
+
+            // cut inside the payload
+            RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "rw");
+            try {
+                randomAccessFile.setLength(randomAccessFile.length() / 2);
+            } finally {
+                randomAccessFile.close();
+            }
+
+            Collection<Class<? extends ServiceParserInterface>> classes = new ArrayList<Class<? extends ServiceParserInterface>>(Arrays.asList(XmlServiceParser.class));
+            try {
+                ServiceXmlSnapshotStorage.read(snapshotFile, classes);
+                fail("broken snapshot was read");
+            } catch (IOException ignored) {
+            }
+        } finally {
+            snapshotFile.delete();
+        }
+
+    }
+
+}